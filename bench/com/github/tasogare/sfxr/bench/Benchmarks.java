@@ -0,0 +1,27 @@
+package com.github.tasogare.sfxr.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, which reports the allocation rate
+ * and the bytes allocated per operation next to every score.
+ *
+ * Takes the usual JMH arguments, for example a regular expression selecting
+ * the benchmarks.
+ *
+ * @author tasogare
+ */
+public final class Benchmarks {
+	public static void main(String... args) throws CommandLineOptionException, RunnerException {
+		var options = new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+
+	private Benchmarks() {
+	}
+}
@@ -0,0 +1,69 @@
+package com.github.tasogare.sfxr.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+import com.github.tasogare.sfxr.engine.FX;
+import com.github.tasogare.sfxr.engine.Preset;
+import com.github.tasogare.sfxr.engine.Synth;
+import com.github.tasogare.sfxr.engine.WaveForm;
+
+/**
+ * Presets generated from fixed seeds, so that every run measures the same
+ * sounds.
+ *
+ * @author tasogare
+ */
+final class Corpus {
+	/**
+	 * Number of presets of each corpus, enough to average out short and long
+	 * sounds.
+	 */
+	static final int SIZE = 64;
+
+	static final long SEED = 42;
+
+	static RandomGenerator rng(long seed) {
+		return RandomGeneratorFactory.of(Synth.RANDOM_ALGORITHM).create(seed);
+	}
+
+	/**
+	 * @return presets of every FX in turn
+	 */
+	static List<Preset> mixed() {
+		var rng = rng(SEED);
+		var presets = new ArrayList<Preset>(SIZE);
+		for (int i = 0; i < SIZE; i++) {
+			presets.add(Preset.fromFx(rng, FX.values()[i % FX.values().length]));
+		}
+		return presets;
+	}
+
+	/**
+	 * @return presets of the FX
+	 */
+	static List<Preset> of(FX fx) {
+		var rng = rng(SEED + fx.ordinal());
+		var presets = new ArrayList<Preset>(SIZE);
+		for (int i = 0; i < SIZE; i++) {
+			presets.add(Preset.fromFx(rng, fx));
+		}
+		return presets;
+	}
+
+	/**
+	 * @return the mixed corpus played with the wave form
+	 */
+	static List<Preset> of(WaveForm waveForm) {
+		var presets = mixed();
+		for (var preset : presets) {
+			preset.setWaveType(waveForm);
+		}
+		return presets;
+	}
+
+	private Corpus() {
+	}
+}
@@ -0,0 +1,75 @@
+package com.github.tasogare.sfxr.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.tasogare.sfxr.engine.FX;
+import com.github.tasogare.sfxr.engine.Preset;
+
+/**
+ * Time of generating and mutating presets.
+ *
+ * @author tasogare
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PresetBenchmark {
+
+	@State(Scope.Thread)
+	public static class FxState {
+		@Param
+		public FX fx;
+	}
+
+	RandomGenerator rng;
+
+	List<Preset> corpus;
+
+	int next;
+
+	@Setup
+	public void setUp() {
+		rng = Corpus.rng(Corpus.SEED);
+		corpus = Corpus.mixed();
+	}
+
+	@Benchmark
+	public Preset fromFx(FxState state) {
+		return Preset.fromFx(rng, state.fx);
+	}
+
+	@Benchmark
+	public Preset random() {
+		var preset = new Preset();
+		preset.random(rng);
+		return preset;
+	}
+
+	/**
+	 * Mutates the presets of the corpus in place, so that no copy is timed. They
+	 * drift away from the corpus, but mutate costs the same whatever the values.
+	 */
+	@Benchmark
+	public Preset mutate() {
+		var preset = corpus.get(next++ % corpus.size());
+		preset.mutate(rng);
+		return preset;
+	}
+}
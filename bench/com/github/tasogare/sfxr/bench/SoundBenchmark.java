@@ -0,0 +1,104 @@
+package com.github.tasogare.sfxr.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.tasogare.sfxr.engine.PcmKernels;
+import com.github.tasogare.sfxr.engine.Resampler;
+import com.github.tasogare.sfxr.engine.Sound;
+import com.github.tasogare.sfxr.engine.WaveWriter;
+
+/**
+ * Time of converting and writing a rendered sound of the corpus.
+ *
+ * @author tasogare
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SoundBenchmark {
+	Sound sound;
+
+	float[] floats;
+
+	byte[] pcm;
+
+	/**
+	 * Counts the bytes written, so the writes can't be eliminated.
+	 */
+	final class CountingStream extends OutputStream {
+		long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+
+	CountingStream sink;
+
+	@Setup
+	public void setUp() {
+		var presets = Corpus.mixed();
+		// the longest sound of the corpus
+		for (int i = 0; i < presets.size(); i++) {
+			var candidate = Sound.fromPreset(presets.get(i), i);
+			if (sound == null || candidate.getPcm().length > sound.getPcm().length) {
+				sound = candidate;
+			}
+		}
+		floats = new float[sound.getPcm().length];
+		// toPcm converts the real sound, not silence
+		PcmKernels.toFloat(sound.getPcm(), 0, floats, 0, floats.length);
+		pcm = new byte[sound.getPcm().length];
+		sink = new CountingStream();
+	}
+
+	@Benchmark
+	public Sound fromPcm() {
+		return new Sound(sound.getPcm(), sound.getSampleRate());
+	}
+
+	@Benchmark
+	public float[] toFloat() {
+		PcmKernels.toFloat(sound.getPcm(), 0, floats, 0, floats.length);
+		return floats;
+	}
+
+	@Benchmark
+	public byte[] toPcm() {
+		PcmKernels.toPcm(floats, 0, pcm, 0, pcm.length);
+		return pcm;
+	}
+
+	@Benchmark
+	public Sound resample() {
+		return Resampler.resample(sound, 48000);
+	}
+
+	@Benchmark
+	public long writeWave() throws IOException {
+		WaveWriter.write(sound, sink);
+		return sink.count;
+	}
+}
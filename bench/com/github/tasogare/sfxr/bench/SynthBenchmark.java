@@ -0,0 +1,79 @@
+package com.github.tasogare.sfxr.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.tasogare.sfxr.engine.FX;
+import com.github.tasogare.sfxr.engine.Preset;
+import com.github.tasogare.sfxr.engine.Sound;
+import com.github.tasogare.sfxr.engine.WaveForm;
+
+/**
+ * Time of {@code Synth.createSound} for each wave form and each FX.
+ *
+ * Every invocation renders the next preset of the corpus with a seed of its
+ * own, so the score is the mean over the corpus.
+ *
+ * @author tasogare
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SynthBenchmark {
+
+	@State(Scope.Thread)
+	public static class WaveFormState {
+		@Param
+		public WaveForm waveForm;
+
+		List<Preset> presets;
+
+		int next;
+
+		@Setup
+		public void setUp() {
+			presets = Corpus.of(waveForm);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class FxState {
+		@Param
+		public FX fx;
+
+		List<Preset> presets;
+
+		int next;
+
+		@Setup
+		public void setUp() {
+			presets = Corpus.of(fx);
+		}
+	}
+
+	@Benchmark
+	public Sound waveForm(WaveFormState state) {
+		int i = state.next++ % state.presets.size();
+		return Sound.fromPreset(state.presets.get(i), i);
+	}
+
+	@Benchmark
+	public Sound fx(FxState state) {
+		int i = state.next++ % state.presets.size();
+		return Sound.fromPreset(state.presets.get(i), i);
+	}
+}
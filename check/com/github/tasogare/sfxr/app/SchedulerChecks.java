@@ -0,0 +1,83 @@
+package com.github.tasogare.sfxr.app;
+
+import static com.github.tasogare.sfxr.check.Checks.check;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import com.github.tasogare.sfxr.app.RenderScheduler.Priority;
+
+/**
+ * Checks of the render scheduler of the editor, which is package-private.
+ *
+ * Both workers are held by a preview and an export while other tasks are
+ * queued, so the order they start in only depends on the scheduler.
+ *
+ * @author tasogare
+ */
+public final class SchedulerChecks {
+	public static void run() {
+		var started = Collections.synchronizedList(new ArrayList<String>());
+		try (var scheduler = new RenderScheduler(2)) {
+			var previewRunning = new CountDownLatch(1);
+			var exportRunning = new CountDownLatch(1);
+			var releasePreview = new CountDownLatch(1);
+			var releaseExport = new CountDownLatch(1);
+			scheduler.submit(Priority.PREVIEW, () -> hold(previewRunning, releasePreview));
+			scheduler.submit(Priority.EXPORT, () -> hold(exportRunning, releaseExport));
+			awaitUninterruptibly(previewRunning);
+			awaitUninterruptibly(exportRunning);
+
+			var tasks = new ArrayList<CompletableFuture<?>>();
+			for (var name : List.of("export 1", "preview 1", "export 2", "preview 2", "playback")) {
+				var priority = Priority.valueOf(name.split(" ")[0].toUpperCase(Locale.ROOT));
+				tasks.add(scheduler.submit(priority, () -> started.add(name)));
+			}
+			// the export worker is held, so the other one takes the urgent tasks
+			releasePreview.countDown();
+			join(tasks.get(4));
+			releaseExport.countDown();
+			tasks.forEach(SchedulerChecks::join);
+
+			check(tasks.get(1).isCancelled(), "superseded preview cancelled");
+			check(started.equals(List.of("preview 2", "playback", "export 1", "export 2")),
+					"scheduled by priority, then in submission order: " + started);
+		}
+	}
+
+	/**
+	 * Holds the worker until released, even once superseded.
+	 */
+	private static boolean hold(CountDownLatch running, CountDownLatch release) {
+		running.countDown();
+		awaitUninterruptibly(release);
+		return true;
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		while (true) {
+			try {
+				latch.await();
+				return;
+			} catch (InterruptedException e) {
+				// superseded, the result is ignored anyway
+			}
+		}
+	}
+
+	private static void join(CompletableFuture<?> task) {
+		try {
+			task.join();
+		} catch (CancellationException e) {
+			// only the superseded preview
+		}
+	}
+
+	private SchedulerChecks() {
+	}
+}
@@ -0,0 +1,346 @@
+package com.github.tasogare.sfxr.check;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+import com.github.tasogare.sfxr.app.SchedulerChecks;
+import com.github.tasogare.sfxr.engine.BatchRenderer;
+import com.github.tasogare.sfxr.engine.BatchRenderer.FxRequest;
+import com.github.tasogare.sfxr.engine.BatchRenderer.PresetRequest;
+import com.github.tasogare.sfxr.engine.BatchRenderer.Request;
+import com.github.tasogare.sfxr.engine.BatchRenderer.Result;
+import com.github.tasogare.sfxr.engine.Differential;
+import com.github.tasogare.sfxr.engine.FX;
+import com.github.tasogare.sfxr.engine.Preset;
+import com.github.tasogare.sfxr.engine.PresetValue;
+import com.github.tasogare.sfxr.engine.RenderCache;
+import com.github.tasogare.sfxr.engine.Resampler;
+import com.github.tasogare.sfxr.engine.Sound;
+import com.github.tasogare.sfxr.engine.Synth;
+import com.github.tasogare.sfxr.engine.VariationPool;
+import com.github.tasogare.sfxr.engine.WaveForm;
+
+/**
+ * Checks of the engine run by the build, without a test framework.
+ *
+ * Fingerprints of presets name cache entries and manifests on disk, so they
+ * are compared with values recorded once; a change breaks every existing
+ * cache. The engine modes available in this JVM are compared with the frozen
+ * reference on a fixed set of presets. The batch renderer, the resampler, the
+ * disk cache, the variation pools and the render scheduler of the editor are
+ * checked for the guarantees they document. Exits with 1 if any check fails.
+ *
+ * @author tasogare
+ */
+public final class Checks {
+	private static final long SEED = 42;
+
+	private static final int DIFFERENTIAL_CASES = 64;
+
+	private static final int DIFFERENTIAL_GROUP_SIZE = 16;
+
+	private static final int BATCH_SIZE = 48;
+
+	private static final int VARIANTS = 5;
+
+	/**
+	 * Output rates of the resampler, each with an input sample that falls on an
+	 * output sample.
+	 */
+	private static final int[][] RESAMPLER_CASES = { { 48000, 441 }, { 32000, 441 }, { 22050, 200 },
+			{ 11025, 400 }, { 96000, 294 } };
+
+	private static final int RESAMPLER_INPUT = 5000;
+
+	private static final int RESAMPLER_BLOCK = 777;
+
+	private static final PresetValue LITERAL = new PresetValue(WaveForm.SINE, 0.3, 0.05, -0.2, 0.01, 0.5, -0.1, 0.25,
+			0.4, 0.02, 0.3, 0.45, 0.6, 0.1, 0.9, -0.05, 0.05, 0.1, -0.3, 0.2, 0.5, 0.6, -0.4, 0.5, 0.5);
+
+	/**
+	 * Fingerprints of {@link Preset#fromFx} for every FX in turn, from
+	 * {@link #SEED}.
+	 */
+	private static final Map<FX, Long> FX_FINGERPRINTS = new EnumMap<>(Map.of(
+			FX.PICKUP, 0x1240fc59d4b8269fL,
+			FX.LASER, 0xb9cff921eba043b5L,
+			FX.EXPLOSION, 0xa43797913885e165L,
+			FX.POWERUP, 0x392cc30d3e3a794aL,
+			FX.HURT, 0xe9b4b4385600d1cfL,
+			FX.JUMP, 0xc32c35b979da6e53L,
+			FX.BEEP, 0xe0c77b87d88eb80fL));
+
+	private static int checks;
+
+	private static int failures;
+
+	public static void main(String... args) throws IOException {
+		fingerprints();
+		differential();
+		batchRenderer();
+		resampler();
+		renderCache();
+		variationPool();
+		SchedulerChecks.run();
+		if (failures > 0) {
+			System.err.printf("%d of %d checks failed%n", failures, checks);
+			System.exit(1);
+		}
+		System.out.printf("%d checks passed%n", checks);
+	}
+
+	private static RandomGenerator rng() {
+		return RandomGeneratorFactory.of(Synth.RANDOM_ALGORITHM).create(SEED);
+	}
+
+	/**
+	 * Counts a check, and reports it if it failed.
+	 *
+	 * @param passed whether the check passed
+	 * @param name   what was checked
+	 */
+	public static void check(boolean passed, String name) {
+		checks++;
+		if (!passed) {
+			failures++;
+			System.err.println("failed: " + name);
+		}
+	}
+
+	private static void fingerprints() {
+		check(LITERAL.fingerprint() == 0xa42d08f8d9d92efbL, "fingerprint of a literal preset");
+		check(new Preset().toValue().fingerprint() == 0x03c193fd7bac4c46L, "fingerprint of the default preset");
+		var rng = rng();
+		for (var fx : FX.values()) {
+			check(Preset.fromFx(rng, fx).toValue().fingerprint() == FX_FINGERPRINTS.get(fx), "fingerprint of " + fx);
+		}
+
+		var roundTrip = LITERAL.toPreset().toValue();
+		check(roundTrip.equals(LITERAL) && roundTrip.fingerprint() == LITERAL.fingerprint(), "round trip");
+
+		var negativeZero = LITERAL.toPreset();
+		negativeZero.setPitchSlide(-0.0);
+		var zero = LITERAL.toPreset();
+		zero.setPitchSlide(0.0);
+		check(negativeZero.toValue().equals(zero.toValue())
+				&& negativeZero.toValue().fingerprint() == zero.toValue().fingerprint(), "-0.0 folded into 0.0");
+
+		var nudged = LITERAL.toPreset();
+		nudged.setStartFrequency(LITERAL.startFrequency() + 1e-12);
+		check(nudged.toValue().equals(LITERAL) && nudged.toValue().fingerprint() == LITERAL.fingerprint(),
+				"difference below single precision ignored");
+
+		var changed = LITERAL.toPreset();
+		changed.setWaveType(WaveForm.SQUARE);
+		check(changed.toValue().fingerprint() != LITERAL.fingerprint(), "wave form fingerprinted");
+	}
+
+	/**
+	 * Builds the cases as the fuzz command does: every FX in turn, then a fully
+	 * random preset.
+	 */
+	private static void differential() {
+		var modes = Differential.modes();
+		check(!modes.isEmpty(), "engine modes available");
+		var rng = rng();
+		var fxes = FX.values();
+		var total = new EnumMap<Differential.Mode, Differential.Deviation>(Differential.Mode.class);
+		for (int first = 0; first < DIFFERENTIAL_CASES; first += DIFFERENTIAL_GROUP_SIZE) {
+			var presets = new ArrayList<Preset>(DIFFERENTIAL_GROUP_SIZE);
+			var seeds = new long[DIFFERENTIAL_GROUP_SIZE];
+			for (int i = 0; i < DIFFERENTIAL_GROUP_SIZE; i++) {
+				int kind = (first + i) % (fxes.length + 1);
+				if (kind < fxes.length) {
+					presets.add(Preset.fromFx(rng, fxes[kind]));
+				} else {
+					var preset = new Preset();
+					preset.random(rng);
+					presets.add(preset);
+				}
+				seeds[i] = rng.nextLong();
+			}
+			Differential.compare(presets, seeds, first, modes)
+					.forEach((mode, deviation) -> total.merge(mode, deviation, Differential.Deviation::merge));
+		}
+		for (var mode : modes) {
+			var deviation = total.getOrDefault(mode, Differential.Deviation.NONE);
+			check(deviation.cases() == DIFFERENTIAL_CASES && deviation.mismatched() == 0,
+					mode + " matches the reference, worst case " + deviation.worst());
+		}
+	}
+
+	private static SplittableGenerator splittable() {
+		return (SplittableGenerator) RandomGeneratorFactory.of(Synth.RANDOM_ALGORITHM).create(SEED);
+	}
+
+	private static boolean same(Sound a, Sound b) {
+		return a.getSampleRate() == b.getSampleRate() && Arrays.equals(a.getPcm(), b.getPcm());
+	}
+
+	private static boolean same(List<Result> a, List<Result> b) {
+		if (a.size() != b.size()) {
+			return false;
+		}
+		for (int i = 0; i < a.size(); i++) {
+			if (a.get(i).index() != i || b.get(i).index() != i || !a.get(i).preset().equals(b.get(i).preset())
+					|| !same(a.get(i).sound(), b.get(i).sound())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Renders the same batch with one thread, several threads and a small window,
+	 * which must give the same sounds in request order.
+	 */
+	private static void batchRenderer() {
+		var rng = rng();
+		var fxes = FX.values();
+		var requests = new ArrayList<Request>(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			if (i % 2 == 0) {
+				requests.add(new FxRequest(fxes[i / 2 % fxes.length]));
+			} else {
+				var preset = new Preset();
+				preset.random(rng);
+				requests.add(new PresetRequest(preset.toValue()));
+			}
+		}
+		List<Result> sequential;
+		try (var renderer = new BatchRenderer(1)) {
+			sequential = renderer.renderAll(requests, splittable());
+		}
+		try (var renderer = new BatchRenderer(4)) {
+			check(same(sequential, renderer.renderAll(requests, splittable())), "batch on 4 threads");
+		}
+		try (var renderer = new BatchRenderer(3, 2)) {
+			check(same(sequential, renderer.renderAll(requests, splittable())), "batch with a window of 2");
+		}
+	}
+
+	/**
+	 * Converts an impulse whole and in blocks: both must give the announced
+	 * number of samples, the same samples, and the impulse at the same time.
+	 */
+	private static void resampler() {
+		for (var c : RESAMPLER_CASES) {
+			int rate = c[0];
+			int impulse = c[1];
+			var resampler = new Resampler(Synth.SAMPLE_RATE, rate);
+			var in = new float[RESAMPLER_INPUT];
+			in[impulse] = 1;
+
+			var whole = new float[resampler.maxOutput(in.length + resampler.getDelay())];
+			int n = resampler.process(in, 0, in.length, whole, 0);
+			n += resampler.flush(whole, n);
+			check(n == resampler.length(in.length), "length at " + rate + " Hz");
+
+			var blocks = new float[whole.length];
+			int m = 0;
+			for (int i = 0; i < in.length; i += RESAMPLER_BLOCK) {
+				m += resampler.process(in, i, Math.min(RESAMPLER_BLOCK, in.length - i), blocks, m);
+			}
+			m += resampler.flush(blocks, m);
+			check(Arrays.equals(whole, 0, n, blocks, 0, m), "blocks at " + rate + " Hz");
+
+			int peak = 0;
+			for (int i = 1; i < n; i++) {
+				if (whole[i] > whole[peak]) {
+					peak = i;
+				}
+			}
+			check(peak == (long) impulse * rate / Synth.SAMPLE_RATE, "alignment at " + rate + " Hz");
+		}
+	}
+
+	/**
+	 * Stores a sound, then reads it back from another cache on the same
+	 * directory, as after a restart.
+	 */
+	private static void renderCache() throws IOException {
+		var directory = Files.createTempDirectory("sfxr-check");
+		try {
+			var preset = Preset.fromFx(rng(), FX.EXPLOSION).toValue();
+			var sound = Sound.fromPreset(preset.toPreset(), SEED);
+			var cache = new RenderCache(directory, 1 << 24);
+			check(cache.lookup(preset, SEED).isEmpty(), "cache miss");
+			cache.put(preset, SEED, sound);
+			check(cache.size() > 0, "cache size");
+
+			var reopened = new RenderCache(directory, 1 << 24);
+			check(reopened.size() == cache.size(), "cache size after a restart");
+			var cached = reopened.lookup(preset, SEED);
+			check(cached.isPresent() && same(cached.get(), sound), "cache round trip");
+			check(reopened.lookup(preset, SEED + 1).isEmpty(), "cache keyed by seed");
+			check(same(reopened.get(LITERAL, SEED), Sound.fromPreset(LITERAL.toPreset(), SEED)),
+					"cache renders a miss");
+		} finally {
+			try (var files = Files.walk(directory)) {
+				for (var file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+					Files.delete(file);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds the variants a pool renders, which must come out in order, then
+	 * checks the selections.
+	 */
+	private static void variationPool() {
+		var base = Preset.fromFx(rng(), FX.LASER).toValue();
+		VariationPool pool;
+		List<Result> expected;
+		try (var renderer = new BatchRenderer(4)) {
+			pool = VariationPool.render(renderer, base, VARIANTS, VariationPool.Selection.ROUND_ROBIN, splittable());
+			var rng = splittable();
+			var requests = new ArrayList<PresetRequest>(VARIANTS);
+			requests.add(new PresetRequest(base));
+			for (int i = 1; i < VARIANTS; i++) {
+				var preset = base.toPreset();
+				preset.mutate(rng);
+				requests.add(new PresetRequest(preset.toValue()));
+			}
+			expected = renderer.renderAll(requests, rng);
+		}
+		boolean ordered = pool.size() == VARIANTS;
+		for (int i = 0; ordered && i < VARIANTS; i++) {
+			ordered = same(pool.get(i), expected.get(i).sound());
+		}
+		check(ordered, "variants in order, the base first");
+
+		boolean roundRobin = true;
+		for (int i = 0; i < 2 * VARIANTS; i++) {
+			roundRobin &= pool.next() == pool.get(i % VARIANTS);
+		}
+		check(roundRobin, "round robin");
+
+		var sounds = new Sound[VARIANTS];
+		for (int i = 0; i < VARIANTS; i++) {
+			sounds[i] = pool.get(i);
+		}
+		var noRepeat = new VariationPool(sounds, VariationPool.Selection.NO_REPEAT);
+		var previous = noRepeat.next();
+		boolean repeated = false;
+		for (int i = 0; i < 100; i++) {
+			var next = noRepeat.next();
+			repeated |= next == previous;
+			previous = next;
+		}
+		check(!repeated, "no repeat");
+	}
+
+	private Checks() {
+	}
+}
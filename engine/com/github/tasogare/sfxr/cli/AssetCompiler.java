@@ -0,0 +1,265 @@
+package com.github.tasogare.sfxr.cli;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32C;
+
+import com.github.tasogare.sfxr.engine.Preset;
+import com.github.tasogare.sfxr.engine.PresetXml;
+import com.github.tasogare.sfxr.engine.Sound;
+import com.github.tasogare.sfxr.engine.RenderCost;
+import com.github.tasogare.sfxr.engine.Synth;
+import com.github.tasogare.sfxr.engine.WaveWriter;
+
+/**
+ * Compiles a directory of presets into wave files, incrementally.
+ *
+ * A manifest next to the outputs records, for every preset, the size and
+ * modification time of its file, its fingerprint, the engine version, the
+ * seed and the checksum of its output. A preset is only parsed again when its
+ * file changed, and only rendered again when its fingerprint, the engine
+ * version or the seed changed, or when its output is missing or doesn't match
+ * its checksum. Outputs of removed presets are deleted.
+ *
+ * @author tasogare
+ */
+final class AssetCompiler {
+	static final String MANIFEST = "manifest.tsv";
+
+	private static final String MANIFEST_HEADER = "# name\tsize\tmodified\tfingerprint\tengine\tseed\toutput";
+
+	/**
+	 * @param size        size of the preset file
+	 * @param modified    modification time of the preset file in milliseconds
+	 * @param fingerprint fingerprint of the preset
+	 * @param engine      engine version of the output
+	 * @param seed        seed of the output
+	 * @param output      CRC-32C of the output file
+	 */
+	record Entry(long size, long modified, long fingerprint, int engine, long seed, long output) {
+		String format(String name) {
+			return String.format(Locale.ROOT, "%s\t%d\t%d\t%016x\t%d\t%d\t%08x", name, size, modified, fingerprint,
+					engine, seed, output);
+		}
+
+		static Entry parse(String[] fields) {
+			return new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+					Long.parseUnsignedLong(fields[3], 16), Integer.parseInt(fields[4]), Long.parseLong(fields[5]),
+					Long.parseLong(fields[6], 16));
+		}
+	}
+
+	/**
+	 * @param unchanged number of up-to-date outputs
+	 * @param rendered  number of outputs rendered
+	 * @param deleted   number of stale outputs deleted
+	 */
+	record Result(int unchanged, int rendered, int deleted) {
+	}
+
+	private record Work(String name, Path file, BasicFileAttributes attributes, Entry previous) {
+	}
+
+	private record Compiled(Entry entry, boolean rendered) {
+	}
+
+	private final Path input;
+
+	private final Path output;
+
+	private final long seed;
+
+	private final int threads;
+
+	private final int maxSamples;
+
+	/**
+	 * @param maxSamples length of the longest sound allowed, longer presets fail
+	 *                   the compilation
+	 */
+	AssetCompiler(Path input, Path output, long seed, int threads, int maxSamples) {
+		this.input = input;
+		this.output = output;
+		this.seed = seed;
+		this.threads = threads;
+		this.maxSamples = maxSamples;
+	}
+
+	Result compile() throws IOException {
+		Files.createDirectories(output);
+		var manifestFile = output.resolve(MANIFEST);
+		var previous = readManifest(manifestFile);
+		var next = new TreeMap<String, Entry>();
+
+		var work = new ArrayList<Work>();
+		try (var children = Files.list(input)) {
+			for (var file : (Iterable<Path>) children::iterator) {
+				var fileName = file.getFileName().toString();
+				if (!fileName.toLowerCase(Locale.ROOT).endsWith(".sfp")) {
+					continue;
+				}
+				var name = fileName.substring(0, fileName.length() - ".sfp".length());
+				var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+				var entry = previous.get(name);
+				if (entry != null && entry.size() == attributes.size()
+						&& entry.modified() == attributes.lastModifiedTime().toMillis()
+						&& entry.engine() == Synth.VERSION && entry.seed() == seed
+						&& intact(outputOf(name), entry)) {
+					next.put(name, entry);
+				} else {
+					work.add(new Work(name, file, attributes, entry));
+				}
+			}
+		}
+		int rendered = 0;
+		var pool = new ForkJoinPool(threads);
+		try {
+			var compiled = pool.submit(() -> work.parallelStream().map(this::compile).toList()).get();
+			for (int i = 0; i < work.size(); i++) {
+				next.put(work.get(i).name(), compiled.get(i).entry());
+				rendered += compiled.get(i).rendered() ? 1 : 0;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof UncheckedIOException cause) {
+				throw cause.getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		int deleted = 0;
+		for (var name : previous.keySet()) {
+			if (!next.containsKey(name) && Files.deleteIfExists(outputOf(name))) {
+				deleted++;
+			}
+		}
+
+		writeManifest(manifestFile, next);
+		return new Result(next.size() - rendered, rendered, deleted);
+	}
+
+	/**
+	 * Re-renders the preset unless only its file attributes changed.
+	 */
+	private Compiled compile(Work work) {
+		try {
+			var preset = readPreset(work.file()).toValue();
+			long fingerprint = preset.fingerprint();
+			var previous = work.previous();
+			var target = outputOf(work.name());
+			if (previous != null && previous.fingerprint() == fingerprint && previous.engine() == Synth.VERSION
+					&& previous.seed() == seed && intact(target, previous)) {
+				return new Compiled(withStat(previous, work), false);
+			}
+
+			var cost = RenderCost.of(preset.toPreset());
+			if (cost.exceeds(maxSamples)) {
+				throw new IOException(String.format("%s: sound of %.1f s, longer than %.1f s", work.file(),
+						cost.seconds(), (double) maxSamples / Synth.SAMPLE_RATE));
+			}
+			var sound = Sound.fromPreset(preset.toPreset(), seed);
+			var bytes = new ByteArrayOutputStream(WaveWriter.HEADER_SIZE + sound.getPcm().length);
+			WaveWriter.write(sound, bytes);
+			var wave = bytes.toByteArray();
+			var crc = new CRC32C();
+			crc.update(wave);
+
+			var temp = Files.createTempFile(output, null, ".tmp");
+			try {
+				Files.write(temp, wave);
+				Files.move(temp, target, ATOMIC_MOVE, REPLACE_EXISTING);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+			return new Compiled(new Entry(work.attributes().size(), work.attributes().lastModifiedTime().toMillis(),
+					fingerprint, Synth.VERSION, seed, crc.getValue()), true);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return whether the output of entry exists and still has its checksum
+	 */
+	private static boolean intact(Path target, Entry entry) throws IOException {
+		var crc = new CRC32C();
+		try {
+			crc.update(Files.readAllBytes(target));
+		} catch (NoSuchFileException e) {
+			return false;
+		}
+		return crc.getValue() == entry.output();
+	}
+
+		private static Entry withStat(Entry entry, Work work) {
+		return new Entry(work.attributes().size(), work.attributes().lastModifiedTime().toMillis(),
+				entry.fingerprint(), entry.engine(), entry.seed(), entry.output());
+	}
+
+	private Path outputOf(String name) {
+		return output.resolve(name + ".wav");
+	}
+
+	private static Preset readPreset(Path file) throws IOException {
+		try (var is = new BufferedInputStream(Files.newInputStream(file))) {
+			return PresetXml.read(is);
+		}
+	}
+
+	private static Map<String, Entry> readManifest(Path file) throws IOException {
+		var entries = new HashMap<String, Entry>();
+		List<String> lines;
+		try {
+			lines = Files.readAllLines(file, UTF_8);
+		} catch (NoSuchFileException e) {
+			return entries;
+		}
+		for (var line : lines) {
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			var fields = line.split("\t");
+			try {
+				entries.put(fields[0], Entry.parse(fields));
+			} catch (RuntimeException e) {
+				// a damaged line only costs a rebuild of its entry
+			}
+		}
+		return entries;
+	}
+
+	private void writeManifest(Path file, Map<String, Entry> entries) throws IOException {
+		var lines = new ArrayList<String>(entries.size() + 1);
+		lines.add(MANIFEST_HEADER);
+		entries.forEach((name, entry) -> lines.add(entry.format(name)));
+		var temp = Files.createTempFile(output, null, ".tmp");
+		try {
+			Files.write(temp, lines, UTF_8);
+			Files.move(temp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+}
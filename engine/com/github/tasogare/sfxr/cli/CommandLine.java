@@ -0,0 +1,630 @@
+package com.github.tasogare.sfxr.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+import com.github.tasogare.sfxr.engine.BatchRenderer;
+import com.github.tasogare.sfxr.engine.BatchRenderer.FxRequest;
+import com.github.tasogare.sfxr.engine.BatchRenderer.PresetRequest;
+import com.github.tasogare.sfxr.engine.BatchRenderer.Request;
+import com.github.tasogare.sfxr.engine.Differential;
+import com.github.tasogare.sfxr.engine.FX;
+import com.github.tasogare.sfxr.engine.LoadTest;
+import com.github.tasogare.sfxr.engine.Mixer;
+import com.github.tasogare.sfxr.engine.PcmKernels;
+import com.github.tasogare.sfxr.engine.Preset;
+import com.github.tasogare.sfxr.engine.PresetXml;
+import com.github.tasogare.sfxr.engine.RenderCost;
+import com.github.tasogare.sfxr.engine.Resampler;
+import com.github.tasogare.sfxr.engine.Sound;
+import com.github.tasogare.sfxr.engine.Synth;
+import com.github.tasogare.sfxr.engine.WaveWriter;
+
+/**
+ * Headless batch generator for build machines.
+ *
+ * Only the engine is used, so neither AWT nor Swing is ever loaded.
+ *
+ * @author tasogare
+ */
+public final class CommandLine {
+	private static final int STREAM_BUFFER_SIZE = 4096;
+
+	private static final int FARM_SHARD_SIZE = 16;
+
+	private static final int FARM_MAX_ATTEMPTS = 3;
+
+	private static final int FUZZ_GROUP_SIZE = 16;
+
+	private static final double LOAD_SEMITONES = 2;
+
+	private static final int LOAD_BUFFER_BLOCKS = 2;
+
+	private static final String USAGE = """
+			usage: generate [-n count] [-s seed] [-j threads] [-o dir] [-r rate] [-l seconds] [-p] [fx...]
+			       render [-s seed] [-j threads] [-o dir] [-r rate] [-l seconds] sfp-file-or-dir...
+			       stream [-n count] [-s seed] [-r rate] [-l seconds] [-f wav|raw] fx-or-sfp-file-or-dir...
+			       compile [-s seed] [-j threads] [-o dir] [-l seconds] sfp-dir
+			       farm [-n count] [-s seed] [-j workers] [-o dir] [-r rate] [-l seconds] fx-or-sfp-file-or-dir...
+			       fuzz [-n count] [-s seed] [-j threads]
+			       load [-n count] [-s seed] [-r rate] [-l seconds] [-t triggers/s] [-d seconds] [-b block] fx-or-sfp-file-or-dir...
+			""";
+
+	/**
+	 * Parsed options shared by the commands.
+	 */
+	static final class Options {
+		int count = 1;
+		long seed = System.nanoTime();
+		boolean seedGiven;
+		int threads = Runtime.getRuntime().availableProcessors();
+		Path output = Path.of(".");
+		int rate = Synth.SAMPLE_RATE;
+		boolean presets;
+		String format = "wav";
+		double triggers = 60;
+		double seconds = 10;
+		int block = 512;
+		int maxSamples = RenderCost.MAX_SAMPLES;
+		final List<String> arguments = new ArrayList<>();
+
+		static Options parse(String[] args, int from) {
+			var options = new Options();
+			for (int i = from; i < args.length; i++) {
+				switch (args[i]) {
+				case "-n" -> options.count = Integer.parseInt(value(args, ++i));
+				case "-s" -> {
+					options.seed = Long.parseLong(value(args, ++i));
+					options.seedGiven = true;
+				}
+				case "-j" -> options.threads = Integer.parseInt(value(args, ++i));
+				case "-o" -> options.output = Path.of(value(args, ++i));
+				case "-r" -> options.rate = Integer.parseInt(value(args, ++i));
+				case "-p" -> options.presets = true;
+				case "-f" -> options.format = value(args, ++i);
+				case "-t" -> options.triggers = Double.parseDouble(value(args, ++i));
+				case "-d" -> options.seconds = Double.parseDouble(value(args, ++i));
+				case "-b" -> options.block = Integer.parseInt(value(args, ++i));
+				case "-l" -> options.maxSamples = (int) Math.min(Integer.MAX_VALUE,
+						Math.round(Double.parseDouble(value(args, ++i)) * Synth.SAMPLE_RATE));
+				default -> {
+					if (args[i].startsWith("-")) {
+						throw new IllegalArgumentException("unknown option: " + args[i]);
+					}
+					options.arguments.add(args[i]);
+				}
+				}
+			}
+			if (options.count < 1 || options.threads < 1 || options.rate < 1 || options.block < 1
+					|| !(options.triggers > 0) || !(options.seconds > 0) || options.maxSamples < 1) {
+				throw new IllegalArgumentException(
+						"count, threads, rate, block, triggers, seconds and limit must be positive");
+			}
+			if (options.rate != Synth.SAMPLE_RATE) {
+				// fails now rather than on the first sound written
+				try {
+					new Resampler(Synth.SAMPLE_RATE, options.rate);
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException("unsupported rate: " + options.rate, e);
+				}
+			}
+			if (!options.format.equals("wav") && !options.format.equals("raw")) {
+				throw new IllegalArgumentException("unknown format: " + options.format);
+			}
+			return options;
+		}
+
+		private static String value(String[] args, int i) {
+			if (i >= args.length) {
+				throw new IllegalArgumentException("missing value for " + args[i - 1]);
+			}
+			return args[i];
+		}
+
+		SplittableGenerator createRng() {
+			if (!seedGiven) {
+				System.err.println("seed " + seed);
+			}
+			return (SplittableGenerator) RandomGeneratorFactory.of(Synth.RANDOM_ALGORITHM).create(seed);
+		}
+	}
+
+	public static void main(String... args) {
+		int status;
+		try {
+			status = run(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.print(USAGE);
+			status = 2;
+		} catch (IOException | UncheckedIOException e) {
+			System.err.println(e);
+			status = 1;
+		}
+		System.exit(status);
+	}
+
+	static int run(String... args) throws IOException {
+		if (args.length == 0) {
+			throw new IllegalArgumentException("missing command");
+		}
+		var options = Options.parse(args, 1);
+		return switch (args[0]) {
+		case "generate" -> generate(options);
+		case "render" -> render(options);
+		case "stream" -> stream(options);
+		case "compile" -> compile(options);
+		case "farm" -> farm(options);
+		case "fuzz" -> fuzz(options);
+		case "load" -> load(options);
+		case "worker" -> worker(options);
+		default -> throw new IllegalArgumentException("unknown command: " + args[0]);
+		};
+	}
+
+	private static int generate(Options options) throws IOException {
+		var fxes = new ArrayList<FX>();
+		for (var name : options.arguments) {
+			fxes.add(FX.valueOf(name.toUpperCase(Locale.ROOT)));
+		}
+		if (fxes.isEmpty()) {
+			fxes.addAll(List.of(FX.values()));
+		}
+
+		var requests = new ArrayList<Request>();
+		var names = new ArrayList<String>();
+		int digits = String.valueOf(options.count - 1).length();
+		for (var fx : fxes) {
+			for (int i = 0; i < options.count; i++) {
+				requests.add(new FxRequest(fx));
+				names.add(String.format("%s-%0" + digits + "d", fx.name().toLowerCase(Locale.ROOT), i));
+			}
+		}
+		return renderTo(options, requests, names);
+	}
+
+	private static int render(Options options) throws IOException {
+		var files = new ArrayList<Path>();
+		for (var argument : options.arguments) {
+			addPresetFiles(Path.of(argument), files);
+		}
+		if (files.isEmpty()) {
+			throw new IllegalArgumentException("no preset given");
+		}
+
+		var requests = new ArrayList<Request>();
+		var names = new ArrayList<String>();
+		for (var file : files) {
+			requests.add(new PresetRequest(readPreset(file, options.maxSamples).toValue()));
+			names.add(baseName(file));
+		}
+		return renderTo(options, requests, names);
+	}
+
+	/**
+	 * Writes the sounds one after another to the standard output as they are
+	 * rendered. Writes block while the pipe is full, which throttles rendering.
+	 */
+	private static int stream(Options options) throws IOException {
+		var sources = new ArrayList<Function<RandomGenerator, Preset>>();
+		for (var argument : options.arguments) {
+			var fx = findFx(argument);
+			if (fx.isPresent()) {
+				sources.add(rng -> Preset.fromFx(rng, fx.get()));
+				continue;
+			}
+			var files = new ArrayList<Path>();
+			addPresetFiles(Path.of(argument), files);
+			for (var file : files) {
+				var preset = readPreset(file, options.maxSamples);
+				sources.add(_ -> preset);
+			}
+		}
+		if (sources.isEmpty()) {
+			throw new IllegalArgumentException("no fx or preset given");
+		}
+
+		boolean wav = options.format.equals("wav");
+		int sounds = sources.size() * options.count;
+		var rng = options.createRng();
+		var out = new FileOutputStream(FileDescriptor.out);
+		var buffer = new byte[STREAM_BUFFER_SIZE];
+		var resampler = options.rate == Synth.SAMPLE_RATE ? null : new Resampler(Synth.SAMPLE_RATE, options.rate);
+		var converter = resampler == null ? null : new StreamConverter(resampler, buffer.length);
+		for (int i = 0; i < sounds; i++) {
+			var jobRng = rng.split();
+			var synth = new Synth(sources.get(i % sources.size()).apply(jobRng), jobRng);
+			int samples = Math.min(synth.getLength(), options.maxSamples);
+			if (wav && i == 0) {
+				int length = resampler == null ? samples : resampler.length(samples);
+				out.write(WaveWriter.header(options.rate, sounds == 1 ? length : -1));
+			}
+			int n;
+			while ((n = synth.render(buffer, 0, Math.min(buffer.length, samples - synth.getPosition()),
+					jobRng)) > 0) {
+				if (converter == null) {
+					emit(out, buffer, n, wav);
+				} else {
+					emit(out, converter.output, converter.process(buffer, n), wav);
+				}
+			}
+			if (converter != null) {
+				emit(out, converter.output, converter.flush(), wav);
+			}
+		}
+		out.flush();
+		return 0;
+	}
+
+	/**
+	 * Converts blocks of 8-bit PCM to another sample rate.
+	 */
+	private static final class StreamConverter {
+		private final Resampler resampler;
+
+		private final float[] input;
+
+		private final float[] resampled;
+
+		final byte[] output;
+
+		StreamConverter(Resampler resampler, int blockSize) {
+			this.resampler = resampler;
+			this.input = new float[blockSize];
+			int capacity = resampler.maxOutput(Math.max(blockSize, resampler.getDelay()));
+			this.resampled = new float[capacity];
+			this.output = new byte[capacity];
+		}
+
+		int process(byte[] pcm, int count) {
+			PcmKernels.toFloat(pcm, 0, input, 0, count);
+			int n = resampler.process(input, 0, count, resampled, 0);
+			PcmKernels.toPcm(resampled, 0, output, 0, n);
+			return n;
+		}
+
+		int flush() {
+			int n = resampler.flush(resampled, 0);
+			PcmKernels.toPcm(resampled, 0, output, 0, n);
+			return n;
+		}
+	}
+
+	private static void emit(OutputStream out, byte[] pcm, int count, boolean wav) throws IOException {
+		if (wav) {
+			WaveWriter.toUnsigned(pcm, 0, count);
+		}
+		out.write(pcm, 0, count);
+	}
+
+	/**
+	 * Brings the outputs of a preset directory up to date. The seed defaults to 0
+	 * so that outputs only depend on their preset.
+	 */
+	private static int compile(Options options) throws IOException {
+		if (options.arguments.size() != 1) {
+			throw new IllegalArgumentException("one preset directory expected");
+		}
+		long start = System.nanoTime();
+		var compiler = new AssetCompiler(Path.of(options.arguments.get(0)), options.output,
+				options.seedGiven ? options.seed : 0, options.threads, options.maxSamples);
+		var result = compiler.compile();
+		System.err.printf("%d unchanged, %d rendered, %d deleted in %.3f s%n", result.unchanged(), result.rendered(),
+				result.deleted(), (System.nanoTime() - start) / 1e9);
+		return 0;
+	}
+
+	/**
+	 * Renders on worker processes, each job with its own seed.
+	 */
+	private static int farm(Options options) throws IOException {
+		var requests = new ArrayList<Request>();
+		var names = new ArrayList<String>();
+		int digits = String.valueOf(options.count - 1).length();
+		for (var argument : options.arguments) {
+			var fx = findFx(argument);
+			if (fx.isPresent()) {
+				for (int i = 0; i < options.count; i++) {
+					requests.add(new FxRequest(fx.get()));
+					names.add(String.format("%s-%0" + digits + "d", fx.get().name().toLowerCase(Locale.ROOT), i));
+				}
+				continue;
+			}
+			var files = new ArrayList<Path>();
+			addPresetFiles(Path.of(argument), files);
+			for (var file : files) {
+				var preset = readPreset(file, options.maxSamples).toValue();
+				for (int i = 0; i < options.count; i++) {
+					requests.add(new PresetRequest(preset));
+					names.add(options.count == 1 ? baseName(file)
+							: String.format("%s-%0" + digits + "d", baseName(file), i));
+				}
+			}
+		}
+		if (requests.isEmpty()) {
+			throw new IllegalArgumentException("no fx or preset given");
+		}
+
+		var rng = options.createRng();
+		var jobs = new ArrayList<RenderFarm.Job>();
+		for (int i = 0; i < requests.size(); i++) {
+			jobs.add(new RenderFarm.Job(i, requests.get(i), rng.nextLong()));
+		}
+		Files.createDirectories(options.output);
+		var farm = new RenderFarm(workerCommand(options), options.threads, FARM_MAX_ATTEMPTS);
+		long start = System.nanoTime();
+		int failures;
+		try {
+			failures = farm.run(jobs, FARM_SHARD_SIZE,
+					(job, sound) -> write(sound, options.output.resolve(names.get(job.index()) + ".wav"), options.rate));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return 1;
+		}
+		System.err.printf("%d sounds, %d failed in %.3f s%n", jobs.size(), failures,
+				(System.nanoTime() - start) / 1e9);
+		return failures == 0 ? 0 : 1;
+	}
+
+	/**
+	 * Renders random presets with the reference synth and with every engine mode
+	 * available, and reports how far their samples deviate. Fails if any sample
+	 * differs.
+	 */
+	private static int fuzz(Options options) {
+		var modes = Differential.modes();
+		var total = new EnumMap<Differential.Mode, Differential.Deviation>(Differential.Mode.class);
+		var failure = new AtomicReference<RuntimeException>();
+		var rng = options.createRng();
+		var fxes = FX.values();
+		var executor = Executors.newFixedThreadPool(options.threads);
+		var inFlight = new Semaphore(2 * options.threads);
+		long start = System.nanoTime();
+		try {
+			for (int first = 0; first < options.count && failure.get() == null; first += FUZZ_GROUP_SIZE) {
+				int n = Math.min(FUZZ_GROUP_SIZE, options.count - first);
+				var presets = new ArrayList<Preset>(n);
+				var seeds = new long[n];
+				for (int i = 0; i < n; i++) {
+					// every fx in turn, then a fully random preset
+					int kind = (first + i) % (fxes.length + 1);
+					if (kind < fxes.length) {
+						presets.add(Preset.fromFx(rng, fxes[kind]));
+					} else {
+						var preset = new Preset();
+						preset.random(rng);
+						presets.add(preset);
+					}
+					seeds[i] = rng.nextLong();
+				}
+				inFlight.acquire();
+				long group = first;
+				executor.execute(() -> {
+					try {
+						var deviations = Differential.compare(presets, seeds, group, modes);
+						synchronized (total) {
+							deviations.forEach((mode, deviation) -> total.merge(mode, deviation,
+									Differential.Deviation::merge));
+						}
+					} catch (RuntimeException e) {
+						failure.compareAndSet(null, e);
+					} finally {
+						inFlight.release();
+					}
+				});
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			return 1;
+		}
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+
+		boolean mismatched = false;
+		System.out.printf("%-13s %10s %10s %4s %10s %s%n", "mode", "cases", "mismatched", "max", "rms", "worst");
+		for (var mode : modes) {
+			var deviation = total.getOrDefault(mode, Differential.Deviation.NONE);
+			System.out.printf("%-13s %10d %10d %4d %10.6f %s%n", mode, deviation.cases(), deviation.mismatched(),
+					deviation.max(), deviation.rms(), deviation.worst() < 0 ? "-" : deviation.worst());
+			mismatched |= deviation.mismatched() > 0;
+		}
+		System.err.printf("%d cases in %.3f s%n", options.count, (System.nanoTime() - start) / 1e9);
+		return mismatched ? 1 : 0;
+	}
+
+	/**
+	 * Plays count variants of each fx or preset at game-like trigger rates on a
+	 * null sink, and reports latencies and underruns. Fails on any underrun.
+	 */
+	private static int load(Options options) throws IOException {
+		var sources = new ArrayList<Function<RandomGenerator, Preset>>();
+		for (var argument : options.arguments) {
+			var fx = findFx(argument);
+			if (fx.isPresent()) {
+				sources.add(rng -> Preset.fromFx(rng, fx.get()));
+				continue;
+			}
+			var files = new ArrayList<Path>();
+			addPresetFiles(Path.of(argument), files);
+			for (var file : files) {
+				var preset = readPreset(file, options.maxSamples);
+				sources.add(_ -> preset);
+			}
+		}
+		if (sources.isEmpty()) {
+			throw new IllegalArgumentException("no fx or preset given");
+		}
+
+		var rng = options.createRng();
+		var sounds = new ArrayList<Sound>();
+		for (var source : sources) {
+			for (int i = 0; i < options.count; i++) {
+				var jobRng = rng.split();
+				sounds.add(new Synth(source.apply(jobRng), jobRng).createSound(jobRng, options.maxSamples));
+			}
+		}
+		var test = new LoadTest(new Mixer(options.rate), sounds, options.triggers, LOAD_SEMITONES, options.block,
+				LOAD_BUFFER_BLOCKS);
+		LoadTest.Report report;
+		try {
+			report = test.run(Duration.ofNanos((long) (options.seconds * 1e9)), LoadTest.NULL_SINK, rng.split());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return 1;
+		}
+		System.out.println(report);
+		return report.underruns() == 0 ? 0 : 1;
+	}
+
+	private static int worker(Options options) throws IOException {
+		RenderFarm.serve(System.in, new FileOutputStream(FileDescriptor.out), options.maxSamples);
+		return 0;
+	}
+
+	/**
+	 * @return whether argument names the main module, unlike --module-path
+	 */
+	private static boolean isModuleOption(String argument) {
+		return argument.equals("-m") || argument.equals("--module") || argument.startsWith("--module=");
+	}
+
+	/**
+	 * @return the command running this class as a farm worker, with the JVM
+	 *         options of the current process
+	 */
+	private static List<String> workerCommand(Options options) {
+		var info = ProcessHandle.current().info();
+		var command = new ArrayList<String>();
+		command.add(info.command().orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+		var arguments = info.arguments().orElse(new String[0]);
+		int i = 0;
+		while (i < arguments.length && !isModuleOption(arguments[i])
+				&& !arguments[i].equals(CommandLine.class.getName())) {
+			command.add(arguments[i++]);
+		}
+		var module = CommandLine.class.getModule();
+		if (i == arguments.length) {
+			command.clear();
+			command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+			if (module.isNamed()) {
+				command.add("-p");
+				command.add(System.getProperty("jdk.module.path"));
+			} else {
+				command.add("-cp");
+				command.add(System.getProperty("java.class.path"));
+			}
+		}
+		if (module.isNamed()) {
+			command.add("-m");
+			command.add(module.getName() + "/" + CommandLine.class.getName());
+		} else {
+			command.add(CommandLine.class.getName());
+		}
+		command.add("worker");
+		command.add("-l");
+		command.add(String.valueOf((double) options.maxSamples / Synth.SAMPLE_RATE));
+		return command;
+	}
+
+	private static String baseName(Path file) {
+		var name = file.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		return dot > 0 ? name.substring(0, dot) : name;
+	}
+
+	private static Optional<FX> findFx(String name) {
+		for (var fx : FX.values()) {
+			if (fx.name().equalsIgnoreCase(name)) {
+				return Optional.of(fx);
+			}
+		}
+		return Optional.empty();
+	}
+
+	private static void addPresetFiles(Path path, List<Path> files) throws IOException {
+		if (Files.isDirectory(path)) {
+			try (var children = Files.list(path)) {
+				children.filter(CommandLine::isPreset).sorted().forEach(files::add);
+			}
+		} else {
+			files.add(path);
+		}
+	}
+
+	/**
+	 * Reads a preset file, refusing it if its sound is longer than the limit, so
+	 * that hand-edited times never reach the synth.
+	 */
+	private static Preset readPreset(Path file, int maxSamples) throws IOException {
+		Preset preset;
+		try (var is = new BufferedInputStream(Files.newInputStream(file))) {
+			preset = PresetXml.read(is);
+		}
+		var cost = RenderCost.of(preset);
+		if (cost.exceeds(maxSamples)) {
+			throw new IOException(String.format("%s: sound of %.1f s, longer than %.1f s", file, cost.seconds(),
+					(double) maxSamples / Synth.SAMPLE_RATE));
+		}
+		return preset;
+	}
+
+	private static int renderTo(Options options, List<Request> requests, List<String> names) throws IOException {
+		Files.createDirectories(options.output);
+		try (var renderer = new BatchRenderer(options.threads, options.threads * 4, options.maxSamples)) {
+			var statistics = renderer.render(requests, options.createRng(), result -> {
+				var name = names.get(result.index());
+				try {
+					write(result.sound(), options.output.resolve(name + ".wav"), options.rate);
+					if (options.presets) {
+						try (var os = new BufferedOutputStream(
+								Files.newOutputStream(options.output.resolve(name + ".sfp")))) {
+							PresetXml.write(result.preset().toPreset(), os);
+						}
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			System.err.println(statistics);
+		}
+		return 0;
+	}
+
+	private static void write(Sound sound, Path path, int rate) throws IOException {
+		try (var os = new BufferedOutputStream(Files.newOutputStream(path))) {
+			WaveWriter.write(Resampler.resample(sound, rate), os);
+		}
+	}
+
+	private static boolean isPreset(Path path) {
+		return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".sfp");
+	}
+
+	private CommandLine() {
+	}
+}
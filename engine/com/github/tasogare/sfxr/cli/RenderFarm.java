@@ -0,0 +1,359 @@
+package com.github.tasogare.sfxr.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+import com.github.tasogare.sfxr.engine.BatchRenderer.FxRequest;
+import com.github.tasogare.sfxr.engine.BatchRenderer.PresetRequest;
+import com.github.tasogare.sfxr.engine.BatchRenderer.Request;
+import com.github.tasogare.sfxr.engine.FX;
+import com.github.tasogare.sfxr.engine.Preset;
+import com.github.tasogare.sfxr.engine.PresetValue;
+import com.github.tasogare.sfxr.engine.RenderCost;
+import com.github.tasogare.sfxr.engine.Sound;
+import com.github.tasogare.sfxr.engine.Synth;
+import com.github.tasogare.sfxr.engine.WaveForm;
+
+/**
+ * Spreads a batch over several worker processes.
+ *
+ * The batch is cut into shards that idle workers pull from a shared queue, so
+ * fast workers take over the work of slow ones. A shard whose worker dies is
+ * queued again and the worker is restarted. Workers speak a small binary
+ * protocol over their standard streams, which a socket could carry as well.
+ *
+ * A worker has a deadline for each shard, as long as the shard plays plus
+ * {@link #START_MILLIS}: rendering is much faster than real time, so a worker
+ * past it is stuck and is killed, and the shard is retried like that of a dead
+ * worker. A sink failing to write, on the other hand, fails the whole run,
+ * while a sound it rejects fails its job only.
+ *
+ * Every job carries its own seed, so the output doesn't depend on the number
+ * of workers nor on retries.
+ *
+ * @author tasogare
+ */
+final class RenderFarm {
+	private static final System.Logger logger = System.getLogger(RenderFarm.class.getName());
+
+	private static final RandomGeneratorFactory<RandomGenerator> RANDOM_GENERATOR_FACTORY = RandomGeneratorFactory
+			.of(Synth.RANDOM_ALGORITHM);
+
+	private static final byte FX_JOB = 0;
+
+	private static final byte PRESET_JOB = 1;
+
+	private static final int END = -1;
+
+	/**
+	 * Allowance for starting the JVM of a worker, on top of the deadline of every
+	 * shard.
+	 */
+	private static final long START_MILLIS = 10_000;
+
+	/**
+	 * @param index   index of the job in the batch
+	 * @param request sound to render
+	 * @param seed    seed of the job
+	 */
+	record Job(int index, Request request, long seed) {
+	}
+
+	/**
+	 * @param jobs    jobs of the shard
+	 * @param samples total length of the sounds
+	 * @param attempt number of the attempt, from 1
+	 */
+	private record Shard(List<Job> jobs, long samples, int attempt) {
+		long deadlineMillis() {
+			return START_MILLIS + samples * 1000 / Synth.SAMPLE_RATE;
+		}
+	}
+
+	/**
+	 * Receives rendered sounds, from several threads at once.
+	 */
+	interface Sink {
+		void accept(Job job, Sound sound) throws IOException;
+	}
+
+	private static Preset preset(Job job, RandomGenerator rng) {
+		return switch (job.request()) {
+		case PresetRequest r -> r.preset().toPreset();
+		// quantized like BatchRenderer, so the farm renders what generate does
+		case FxRequest r -> Preset.fromFx(rng, r.fx()).toValue().toPreset();
+		};
+	}
+
+	static Sound render(Job job, int maxSamples) {
+		var rng = RANDOM_GENERATOR_FACTORY.create(job.seed());
+		return new Synth(preset(job, rng), rng).createSound(rng, maxSamples);
+	}
+
+	static RenderCost cost(Job job) {
+		return RenderCost.of(preset(job, RANDOM_GENERATOR_FACTORY.create(job.seed())));
+	}
+
+	/**
+	 * Serves shards read from in until the end marker or the end of the stream.
+	 *
+	 * @param in         shards
+	 * @param out        rendered sounds
+	 * @param maxSamples length after which sounds are cut
+	 * @throws IOException if a stream fails
+	 */
+	static void serve(InputStream in, OutputStream out, int maxSamples) throws IOException {
+		var input = new DataInputStream(new BufferedInputStream(in));
+		var output = new DataOutputStream(new BufferedOutputStream(out));
+		while (true) {
+			int count;
+			try {
+				count = input.readInt();
+			} catch (EOFException e) {
+				return;
+			}
+			if (count == END) {
+				return;
+			}
+			for (int i = 0; i < count; i++) {
+				var job = readJob(input);
+				var sound = render(job, maxSamples);
+				output.writeInt(job.index());
+				output.writeInt(sound.getSampleRate());
+				output.writeInt(sound.getPcm().length);
+				output.write(sound.getPcm());
+			}
+			output.flush();
+		}
+	}
+
+	private static void writeJob(DataOutput output, Job job) throws IOException {
+		output.writeInt(job.index());
+		output.writeLong(job.seed());
+		switch (job.request()) {
+		case FxRequest r -> {
+			output.writeByte(FX_JOB);
+			output.writeByte(r.fx().ordinal());
+		}
+		case PresetRequest r -> {
+			var p = r.preset();
+			output.writeByte(PRESET_JOB);
+			output.writeByte(p.waveType().ordinal());
+			for (double v : new double[] { p.startFrequency(), p.minimalFrequency(), p.pitchSlide(),
+					p.pitchDeltaSlide(), p.squareDuty(), p.squareDutySlide(), p.vibratoStrength(), p.vibratoSpeed(),
+					p.attackTime(), p.sustainTime(), p.decayTime(), p.sustainPunch(), p.lowpassFilterResonance(),
+					p.lowpassFilterCutoff(), p.lowpassFilterCutoffSlide(), p.highpassFilterCutoff(),
+					p.highpassFilterCutoffSlide(), p.phaserOffset(), p.phaserSlide(), p.repeatSpeed(),
+					p.arpeggioSpeed(), p.arpeggioDepth(), p.masterVolume(), p.soundVolume() }) {
+				output.writeDouble(v);
+			}
+		}
+		}
+	}
+
+	private static Job readJob(DataInput input) throws IOException {
+		int index = input.readInt();
+		long seed = input.readLong();
+		Request request = switch (input.readByte()) {
+		case FX_JOB -> new FxRequest(FX.values()[input.readByte()]);
+		case PRESET_JOB -> new PresetRequest(new PresetValue(WaveForm.values()[input.readByte()],
+				input.readDouble(), input.readDouble(), input.readDouble(), input.readDouble(), input.readDouble(),
+				input.readDouble(), input.readDouble(), input.readDouble(), input.readDouble(), input.readDouble(),
+				input.readDouble(), input.readDouble(), input.readDouble(), input.readDouble(), input.readDouble(),
+				input.readDouble(), input.readDouble(), input.readDouble(), input.readDouble(), input.readDouble(),
+				input.readDouble(), input.readDouble(), input.readDouble(), input.readDouble()));
+		default -> throw new IOException("unknown job kind");
+		};
+		return new Job(index, request, seed);
+	}
+
+	private final List<String> workerCommand;
+
+	private final int workers;
+
+	private final int maxAttempts;
+
+	private final LinkedBlockingQueue<Shard> shards = new LinkedBlockingQueue<>();
+
+	private final AtomicInteger remaining = new AtomicInteger();
+
+	private final AtomicInteger failedJobs = new AtomicInteger();
+
+	private final AtomicReference<IOException> sinkFailure = new AtomicReference<>();
+
+	/**
+	 * @param workerCommand command starting a worker process
+	 * @param workers       number of worker processes
+	 * @param maxAttempts   number of tries of a shard before giving up
+	 */
+	RenderFarm(List<String> workerCommand, int workers, int maxAttempts) {
+		this.workerCommand = List.copyOf(workerCommand);
+		this.workers = workers;
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Queues the longest jobs first, so that the batch doesn't end waiting for
+	 * the one worker that drew them last.
+	 *
+	 * @param jobs      jobs of the batch
+	 * @param shardSize number of jobs per shard
+	 * @param sink      receives the rendered sounds
+	 * @return number of jobs that failed on every attempt
+	 * @throws IOException          if the sink failed, which stops the run
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 */
+	int run(List<Job> jobs, int shardSize, Sink sink) throws IOException, InterruptedException {
+		var costs = new HashMap<Job, RenderCost>();
+		for (var job : jobs) {
+			costs.put(job, cost(job));
+		}
+		var longestFirst = new ArrayList<>(jobs);
+		longestFirst.sort(Comparator.comparingLong((Job job) -> costs.get(job).work()).reversed());
+		for (int i = 0; i < longestFirst.size(); i += shardSize) {
+			var shard = List.copyOf(longestFirst.subList(i, Math.min(i + shardSize, longestFirst.size())));
+			shards.add(new Shard(shard, shard.stream().mapToLong(job -> costs.get(job).samples()).sum(), 1));
+		}
+		remaining.set(shards.size());
+
+		var watchdog = Executors
+				.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("farm-watchdog").daemon().factory());
+		var threads = new ArrayList<Thread>();
+		for (int i = 0; i < workers; i++) {
+			threads.add(Thread.ofPlatform().name("farm-worker-" + i).start(() -> drive(sink, watchdog)));
+		}
+		try {
+			for (var thread : threads) {
+				thread.join();
+			}
+		} finally {
+			watchdog.shutdownNow();
+		}
+		var failure = sinkFailure.get();
+		if (failure != null) {
+			throw failure;
+		}
+		// shards left behind when no worker could be started
+		return failedJobs.get() + shards.stream().mapToInt(shard -> shard.jobs().size()).sum();
+	}
+
+	/**
+	 * Feeds one worker process at a time, restarting it when it dies.
+	 */
+	private void drive(Sink sink, ScheduledExecutorService watchdog) {
+		while (remaining.get() > 0) {
+			Process process;
+			try {
+				process = new ProcessBuilder(workerCommand).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+			} catch (IOException e) {
+				logger.log(System.Logger.Level.ERROR, "can't start worker", e);
+				return;
+			}
+			try {
+				feed(process, sink, watchdog);
+			} finally {
+				process.destroy();
+			}
+		}
+	}
+
+	private void feed(Process process, Sink sink, ScheduledExecutorService watchdog) {
+		var output = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+		var input = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+		while (remaining.get() > 0) {
+			Shard shard;
+			try {
+				shard = shards.poll(100, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (shard == null) {
+				continue;
+			}
+			List<Sound> received;
+			var timedOut = new AtomicBoolean();
+			var deadline = watchdog.schedule(() -> {
+				timedOut.set(true);
+				process.destroyForcibly();
+			}, shard.deadlineMillis(), TimeUnit.MILLISECONDS);
+			try {
+				output.writeInt(shard.jobs().size());
+				for (var job : shard.jobs()) {
+					writeJob(output, job);
+				}
+				output.flush();
+				received = new ArrayList<>(shard.jobs().size());
+				for (int i = 0; i < shard.jobs().size(); i++) {
+					int index = input.readInt();
+					if (index != shard.jobs().get(i).index()) {
+						throw new IOException("unexpected job " + index);
+					}
+					int sampleRate = input.readInt();
+					var pcm = new byte[input.readInt()];
+					input.readFully(pcm);
+					received.add(new Sound(pcm, sampleRate));
+				}
+			} catch (IOException e) {
+				retry(shard, timedOut.get() ? new IOException("worker missed the deadline of the shard", e) : e);
+				return;
+			} finally {
+				deadline.cancel(false);
+			}
+			for (int i = 0; i < received.size(); i++) {
+				var job = shard.jobs().get(i);
+				try {
+					sink.accept(job, received.get(i));
+				} catch (IOException e) {
+					// retrying doesn't help a full disk, so every worker stops
+					sinkFailure.compareAndSet(null, e);
+					remaining.set(0);
+					return;
+				} catch (RuntimeException e) {
+					// a sound the sink rejects fails its job only
+					logger.log(System.Logger.Level.ERROR, "can't write job " + job.index(), e);
+					failedJobs.incrementAndGet();
+				}
+			}
+			remaining.decrementAndGet();
+		}
+		try {
+			output.writeInt(END);
+			output.flush();
+		} catch (IOException e) {
+			// the worker is gone already
+		}
+	}
+
+	private void retry(Shard shard, IOException cause) {
+		if (shard.attempt() < maxAttempts) {
+			logger.log(System.Logger.Level.WARNING, "retrying shard of job " + shard.jobs().get(0).index(), cause);
+			shards.add(new Shard(shard.jobs(), shard.samples(), shard.attempt() + 1));
+		} else {
+			logger.log(System.Logger.Level.ERROR, "giving up shard of job " + shard.jobs().get(0).index(), cause);
+			failedJobs.addAndGet(shard.jobs().size());
+			remaining.decrementAndGet();
+		}
+	}
+}
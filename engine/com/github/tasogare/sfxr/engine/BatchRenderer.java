@@ -0,0 +1,210 @@
+package com.github.tasogare.sfxr.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+
+/**
+ * Renders many sounds in parallel.
+ *
+ * Every request gets its own generator split from the caller's generator in
+ * request order, so the output is bit-identical whatever the parallelism. At
+ * most {@code window} sounds are in flight or waiting to be consumed, and
+ * results are handed out in request order.
+ *
+ * Presets are resolved on the calling thread, half a window at a time, and
+ * each half is submitted longest first by {@link RenderCost}, so that a long
+ * sound doesn't start last and hold its half back. Sounds may be cut to a
+ * maximum length, so that a pathological preset can't exhaust the memory.
+ *
+ * @author tasogare
+ */
+public class BatchRenderer implements AutoCloseable {
+
+	/**
+	 * A sound to render.
+	 */
+	public sealed interface Request permits PresetRequest, FxRequest {
+	}
+
+	/**
+	 * Renders the given preset.
+	 */
+	public record PresetRequest(PresetValue preset) implements Request {
+	}
+
+	/**
+	 * Renders a preset generated from the given FX.
+	 */
+	public record FxRequest(FX fx) implements Request {
+	}
+
+	/**
+	 * @param index  index of the request
+	 * @param preset preset the sound was rendered from
+	 * @param sound  rendered sound
+	 */
+	public record Result(int index, PresetValue preset, Sound sound) {
+	}
+
+	/**
+	 * @param sounds       number of sounds rendered
+	 * @param samples      number of samples rendered
+	 * @param elapsedNanos wall clock time of the batch
+	 */
+	public record Statistics(int sounds, long samples, long elapsedNanos) {
+		public double soundsPerSecond() {
+			return sounds * 1e9 / Math.max(elapsedNanos, 1);
+		}
+
+		public double samplesPerSecond() {
+			return samples * 1e9 / Math.max(elapsedNanos, 1);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d sounds, %d samples in %.3f s (%.1f sounds/s, %.0f samples/s)", sounds, samples,
+					elapsedNanos / 1e9, soundsPerSecond(), samplesPerSecond());
+		}
+	}
+
+	/**
+	 * A request resolved to its preset, with the generator to render it.
+	 */
+	private record Job(int index, Preset preset, RandomGenerator rng, RenderCost cost) {
+	}
+
+	/**
+	 * @return the preset to render, quantized as its {@link PresetValue} so that
+	 *         the value of the result renders the same sound
+	 */
+	private static Preset preset(Request request, RandomGenerator rng) {
+		return switch (request) {
+		case PresetRequest r -> r.preset().toPreset();
+		case FxRequest r -> Preset.fromFx(rng, r.fx()).toValue().toPreset();
+		};
+	}
+
+	private final ForkJoinPool pool;
+
+	private final int window;
+
+	private final int maxSamples;
+
+	/**
+	 * Uses every available processor.
+	 */
+	public BatchRenderer() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param parallelism number of rendering threads
+	 */
+	public BatchRenderer(int parallelism) {
+		this(parallelism, parallelism * 4);
+	}
+
+	/**
+	 * @param parallelism number of rendering threads
+	 * @param window      maximum number of sounds held at once
+	 */
+	public BatchRenderer(int parallelism, int window) {
+		this(parallelism, window, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param parallelism number of rendering threads
+	 * @param window      maximum number of sounds held at once
+	 * @param maxSamples  length after which sounds are cut
+	 */
+	public BatchRenderer(int parallelism, int window, int maxSamples) {
+		if (window < 1 || maxSamples < 0) {
+			throw new IllegalArgumentException("window: " + window + ", max samples: " + maxSamples);
+		}
+		this.pool = new ForkJoinPool(parallelism);
+		this.window = window;
+		this.maxSamples = maxSamples;
+	}
+
+	/**
+	 * Shuts the rendering threads down.
+	 */
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Renders the requests, handing the results to consumer in request order on
+	 * the calling thread.
+	 *
+	 * @param requests sounds to render
+	 * @param rng      generator split once per request
+	 * @param consumer receives every result
+	 * @return throughput of the batch
+	 */
+	public Statistics render(List<? extends Request> requests, SplittableGenerator rng,
+			Consumer<? super Result> consumer) {
+		long start = System.nanoTime();
+		long samples = 0;
+		var inFlight = new ArrayDeque<CompletableFuture<Result>>(window);
+		int chunk = Math.max(1, window / 2);
+		int next = 0;
+		try {
+			while (next < requests.size() || !inFlight.isEmpty()) {
+				while (next < requests.size() && inFlight.size() <= window - chunk) {
+					int end = Math.min(next + chunk, requests.size());
+					submit(requests, next, end, rng, inFlight);
+					next = end;
+				}
+				var result = inFlight.remove().join();
+				samples += result.sound().getPcm().length;
+				consumer.accept(result);
+			}
+		} finally {
+			inFlight.forEach(f -> f.cancel(false));
+		}
+		return new Statistics(requests.size(), samples, System.nanoTime() - start);
+	}
+
+	private void submit(List<? extends Request> requests, int from, int to, SplittableGenerator rng,
+			ArrayDeque<CompletableFuture<Result>> inFlight) {
+		var jobs = new ArrayList<Job>(to - from);
+		for (int index = from; index < to; index++) {
+			var jobRng = rng.split();
+			var preset = preset(requests.get(index), jobRng);
+			jobs.add(new Job(index, preset, jobRng, RenderCost.of(preset)));
+		}
+		var futures = new ArrayList<CompletableFuture<Result>>(Collections.nCopies(jobs.size(), null));
+		var longestFirst = new ArrayList<>(jobs);
+		longestFirst.sort(Comparator.comparingLong((Job job) -> job.cost().work()).reversed());
+		for (var job : longestFirst) {
+			futures.set(job.index() - from, CompletableFuture.supplyAsync(() -> render(job), pool));
+		}
+		inFlight.addAll(futures);
+	}
+
+	private Result render(Job job) {
+		var synth = new Synth(job.preset(), job.rng());
+		return new Result(job.index(), job.preset().toValue(), synth.createSound(job.rng(), maxSamples));
+	}
+
+	/**
+	 * @param requests sounds to render
+	 * @param rng      generator split once per request
+	 * @return the results in request order
+	 */
+	public List<Result> renderAll(List<? extends Request> requests, SplittableGenerator rng) {
+		var results = new ArrayList<Result>(requests.size());
+		render(requests, rng, results::add);
+		return results;
+	}
+}
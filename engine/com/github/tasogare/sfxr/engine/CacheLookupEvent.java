@@ -0,0 +1,27 @@
+package com.github.tasogare.sfxr.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning a lookup of the {@link RenderCache}.
+ *
+ * @author tasogare
+ */
+@Name("tasogare.sfxr.CacheLookup")
+@Label("Cache Lookup")
+@Category({ "SFXR", "Engine" })
+@Description("Lookup of a sound in the render cache")
+final class CacheLookupEvent extends Event {
+	@Label("Key")
+	long key;
+
+	@Label("Hit")
+	boolean hit;
+
+	@Label("Samples")
+	int samples;
+}
@@ -0,0 +1,167 @@
+package com.github.tasogare.sfxr.engine;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * Differential testing of the optimized engines against {@link ReferenceSynth}.
+ *
+ * Each case is a preset and a seed. The reference and every engine mode render
+ * it with generators seeded alike, and the samples they produce are compared.
+ * Every mode is meant to be bit-exact, so any deviation is a regression.
+ *
+ * @author tasogare
+ */
+public final class Differential {
+	private static final RandomGeneratorFactory<RandomGenerator> RANDOM_GENERATOR_FACTORY = RandomGeneratorFactory
+			.of(Synth.RANDOM_ALGORITHM);
+
+	/**
+	 * Engines compared with the reference.
+	 */
+	public enum Mode {
+		/**
+		 * {@link Synth} with the scalar kernels.
+		 */
+		SYNTH_SCALAR("synth/scalar", false),
+		/**
+		 * {@link Synth} with the Vector API kernels.
+		 */
+		SYNTH_VECTOR("synth/vector", true);
+
+		private final String label;
+
+		private final boolean vector;
+
+		Mode(String label, boolean vector) {
+			this.label = label;
+			this.vector = vector;
+		}
+
+		private PcmKernels.Kernels kernels() {
+			return vector ? PcmKernels.kernels() : PcmKernels.scalar();
+		}
+
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
+
+	/**
+	 * Deviation of the samples of an engine from the reference, over some cases.
+	 * Sounds of different lengths are compared as if the shorter one were padded
+	 * with silence.
+	 *
+	 * @param cases      number of cases
+	 * @param mismatched number of cases with any deviation
+	 * @param samples    number of samples compared
+	 * @param max        largest absolute deviation of a sample, in PCM steps
+	 * @param squares    sum of the squared deviations
+	 * @param worst      first case with the largest deviation, -1 if none
+	 */
+	public record Deviation(long cases, long mismatched, long samples, int max, long squares, long worst) {
+		/**
+		 * Deviation of no case.
+		 */
+		public static final Deviation NONE = new Deviation(0, 0, 0, 0, 0, -1);
+
+		/**
+		 * @return the deviation over the cases of both
+		 */
+		public Deviation merge(Deviation other) {
+			Deviation worse;
+			if (max != other.max) {
+				worse = max > other.max ? this : other;
+			} else {
+				worse = other.worst < 0 || worst >= 0 && worst < other.worst ? this : other;
+			}
+			return new Deviation(cases + other.cases, mismatched + other.mismatched, samples + other.samples,
+					worse.max, squares + other.squares, worse.worst);
+		}
+
+		/**
+		 * @return root mean square deviation of a sample, in PCM steps
+		 */
+		public double rms() {
+			return samples == 0 ? 0.0 : Math.sqrt((double) squares / samples);
+		}
+	}
+
+	/**
+	 * @return modes that can run in this JVM, the vector ones only when the
+	 *         Vector API kernels are in use
+	 */
+	public static Set<Mode> modes() {
+		var modes = EnumSet.allOf(Mode.class);
+		if (!PcmKernels.isVectorized()) {
+			modes.removeIf(mode -> mode.vector);
+		}
+		return modes;
+	}
+
+	/**
+	 * Renders cases with the reference and with each mode.
+	 *
+	 * @param presets presets of the cases
+	 * @param seeds   seed of each case
+	 * @param first   number of the first case, reported as the worst one
+	 * @param modes   modes to compare
+	 * @return the deviation of each mode over the cases
+	 */
+	public static Map<Mode, Deviation> compare(List<Preset> presets, long[] seeds, long first, Set<Mode> modes) {
+		int count = presets.size();
+		if (count == 0 || seeds.length != count) {
+			throw new IllegalArgumentException("presets: " + count + ", seeds: " + seeds.length);
+		}
+		var references = new byte[count][];
+		for (int i = 0; i < count; i++) {
+			var rng = RANDOM_GENERATOR_FACTORY.create(seeds[i]);
+			references[i] = new ReferenceSynth(presets.get(i), rng).render(rng);
+		}
+
+		var deviations = new EnumMap<Mode, Deviation>(Mode.class);
+		for (var mode : modes) {
+			var pcm = render(mode, presets, seeds);
+			var deviation = Deviation.NONE;
+			for (int i = 0; i < count; i++) {
+				deviation = deviation.merge(compare(references[i], pcm[i], first + i));
+			}
+			deviations.put(mode, deviation);
+		}
+		return deviations;
+	}
+
+	private static byte[][] render(Mode mode, List<Preset> presets, long[] seeds) {
+		var kernels = mode.kernels();
+		var pcm = new byte[presets.size()][];
+		for (int i = 0; i < pcm.length; i++) {
+			var rng = RANDOM_GENERATOR_FACTORY.create(seeds[i]);
+			var synth = new Synth(presets.get(i), rng, kernels);
+			pcm[i] = new byte[synth.getLength()];
+			synth.render(pcm[i], 0, pcm[i].length, rng);
+		}
+		return pcm;
+	}
+
+	private static Deviation compare(byte[] reference, byte[] actual, long index) {
+		int common = Math.min(reference.length, actual.length);
+		int max = PcmKernels.maxDifference(reference, 0, actual, 0, common);
+		long squares = PcmKernels.squaredDifference(reference, 0, actual, 0, common);
+		var tail = reference.length > common ? reference : actual;
+		for (int i = common; i < tail.length; i++) {
+			max = Math.max(max, Math.abs(tail[i]));
+			squares += tail[i] * tail[i];
+		}
+		boolean mismatched = max > 0 || reference.length != actual.length;
+		return new Deviation(1, mismatched ? 1 : 0, tail.length, max, squares, mismatched ? index : -1);
+	}
+
+	private Differential() {
+	}
+}
@@ -0,0 +1,19 @@
+package com.github.tasogare.sfxr.engine;
+
+/**
+ * How a {@link Voice} reads between the samples of its sound.
+ *
+ * @author tasogare
+ */
+public enum Interpolation {
+	/**
+	 * Straight line between the two neighbouring samples. Two multiply-adds per
+	 * sample, with some dulling and aliasing at large shifts.
+	 */
+	LINEAR,
+	/**
+	 * Catmull-Rom spline through the four neighbouring samples. About four times
+	 * the cost of linear, noticeably cleaner highs.
+	 */
+	CUBIC
+}
@@ -0,0 +1,131 @@
+package com.github.tasogare.sfxr.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations in nanoseconds, with the bucket layout of
+ * HdrHistogram.
+ *
+ * Values below 256 have a bucket each; above, every power of two is split in
+ * 128 buckets, so a percentile is within 1% of the exact value whatever its
+ * magnitude. Recording is a few instructions and a lock-free increment, from
+ * any thread.
+ *
+ * @author tasogare
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 7;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int BUCKETS = (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS + 2 * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong max = new AtomicLong();
+
+	private static int index(long value) {
+		int shift = Math.max(0, Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	/**
+	 * @return the largest value that falls into the bucket
+	 */
+	private static long highest(int index) {
+		int shift = Math.max(0, index / SUB_BUCKETS - 1);
+		long sub = index - shift * SUB_BUCKETS;
+		return ((sub + 1) << shift) - 1;
+	}
+
+	/**
+	 * Creates an empty histogram.
+	 */
+	public LatencyHistogram() {
+	}
+
+	/**
+	 * @param nanos duration, negative ones count as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(index(value));
+		count.incrementAndGet();
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	/**
+	 * @return number of values recorded
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return largest value recorded, exactly
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @param percentile percentile in [0, 100]
+	 * @return the value at or below which the percentile of the values falls, 0
+	 *         if nothing was recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = count.get();
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highest(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Adds the values of another histogram to this one.
+	 *
+	 * @param other histogram to add
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			long n = other.counts.get(i);
+			if (n != 0) {
+				counts.addAndGet(i, n);
+			}
+		}
+		count.addAndGet(other.count.get());
+		max.accumulateAndGet(other.max.get(), Math::max);
+	}
+
+	/**
+	 * Forgets every value recorded.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.set(0);
+		max.set(0);
+	}
+
+	/**
+	 * @return count and p50, p99, p99.9 and max in milliseconds
+	 */
+	@Override
+	public String toString() {
+		return String.format("n %d, p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms", getCount(),
+				getValueAtPercentile(50) / 1e6, getValueAtPercentile(99) / 1e6, getValueAtPercentile(99.9) / 1e6,
+				getMax() / 1e6);
+	}
+}
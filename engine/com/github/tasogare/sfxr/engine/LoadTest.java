@@ -0,0 +1,202 @@
+package com.github.tasogare.sfxr.engine;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.random.RandomGenerator;
+
+/**
+ * Plays sounds through a {@link Mixer} the way a game does, and measures how
+ * the playback keeps up.
+ *
+ * A trigger thread starts voices at random times, at a given mean rate, each
+ * with a random sound and pitch. The calling thread mixes blocks in real time
+ * as an audio device would pull them: a block may be mixed as soon as the
+ * device buffer has room for it, and must be delivered before the device
+ * reaches it, or the device underruns and waits for it.
+ *
+ * The latency of a trigger is the time until the device plays the first sample
+ * of its voice; the render time is the time to mix a block.
+ *
+ * @author tasogare
+ */
+public final class LoadTest {
+	/**
+	 * Gain of every voice, leaving headroom for overlapping voices.
+	 */
+	private static final float GAIN = 0.25f;
+
+	/**
+	 * Receives the mixed blocks, such as {@code line::write} for a
+	 * {@code SourceDataLine}.
+	 */
+	@FunctionalInterface
+	public interface Sink {
+		void write(byte[] pcm, int offset, int count) throws IOException;
+	}
+
+	/**
+	 * Discards every block, for machines without audio.
+	 */
+	public static final Sink NULL_SINK = (pcm, offset, count) -> {
+	};
+
+	/**
+	 * @param triggers  number of voices started
+	 * @param blocks    number of blocks mixed
+	 * @param underruns number of blocks delivered after the device needed them
+	 * @param maxVoices largest number of voices mixed together
+	 * @param latency   time from a trigger to the first sample of its voice
+	 * @param render    time to mix a block
+	 */
+	public record Report(long triggers, long blocks, long underruns, int maxVoices, LatencyHistogram latency,
+			LatencyHistogram render) {
+		@Override
+		public String toString() {
+			return String.format("triggers %d, blocks %d, underruns %d, max voices %d%nlatency %s%nrender  %s",
+					triggers, blocks, underruns, maxVoices, latency, render);
+		}
+	}
+
+	private record Trigger(Voice voice, long nanos) {
+	}
+
+	private final Mixer mixer;
+
+	private final List<Sound> sounds;
+
+	private final double triggersPerSecond;
+
+	private final double semitones;
+
+	private final int blockSize;
+
+	private final int bufferBlocks;
+
+	/**
+	 * @param mixer             mixer to drive, not mixed by anyone else
+	 * @param sounds            sounds to pick from
+	 * @param triggersPerSecond mean number of voices started per second
+	 * @param semitones         largest pitch shift of a voice, up or down
+	 * @param blockSize         number of samples mixed at once
+	 * @param bufferBlocks      number of blocks the device buffers
+	 */
+	public LoadTest(Mixer mixer, List<Sound> sounds, double triggersPerSecond, double semitones, int blockSize,
+			int bufferBlocks) {
+		if (sounds.isEmpty() || !(triggersPerSecond > 0) || !(semitones >= 0) || blockSize < 1
+				|| bufferBlocks < 1) {
+			throw new IllegalArgumentException("sounds: " + sounds.size() + ", triggers per second: "
+					+ triggersPerSecond + ", semitones: " + semitones + ", block: " + blockSize + ", buffer: "
+					+ bufferBlocks);
+		}
+		this.mixer = mixer;
+		this.sounds = List.copyOf(sounds);
+		this.triggersPerSecond = triggersPerSecond;
+		this.semitones = semitones;
+		this.blockSize = blockSize;
+		this.bufferBlocks = bufferBlocks;
+	}
+
+	/**
+	 * Plays for some time on the calling thread.
+	 *
+	 * @param duration how long to trigger voices
+	 * @param sink     receives the mixed blocks
+	 * @param rng      used by the trigger thread only while running
+	 * @return the measurements
+	 * @throws IOException          if the sink fails
+	 * @throws InterruptedException if interrupted while waiting for the device
+	 */
+	public Report run(Duration duration, Sink sink, RandomGenerator rng) throws IOException, InterruptedException {
+		var latency = new LatencyHistogram();
+		var render = new LatencyHistogram();
+		var pending = new ConcurrentLinkedQueue<Trigger>();
+		var triggers = new AtomicLong();
+		long period = Math.round(blockSize * 1e9 / mixer.getSampleRate());
+		long start = System.nanoTime();
+		long end = start + duration.toNanos();
+
+		var triggerThread = Thread.ofPlatform().name("load-trigger").daemon().start(() -> {
+			try {
+				trigger(start, end, pending, triggers, rng);
+			} catch (InterruptedException e) {
+				// stopped early
+			}
+		});
+		try {
+			var buffer = new byte[blockSize];
+			var waiting = new ArrayList<Trigger>();
+			long blocks = 0;
+			long underruns = 0;
+			int maxVoices = 0;
+			// the device plays block 0 once its buffer is full
+			long playAt = start + bufferBlocks * period;
+			for (long room = start; room < end; room = playAt - bufferBlocks * period) {
+				parkUntil(room);
+				long mixStart = System.nanoTime();
+				mixer.mix(buffer, 0, blockSize);
+				render.record(System.nanoTime() - mixStart);
+				sink.write(buffer, 0, blockSize);
+				long ready = System.nanoTime();
+				if (ready > playAt) {
+					underruns++;
+					playAt = ready;
+				}
+
+				for (Trigger t; (t = pending.poll()) != null;) {
+					waiting.add(t);
+				}
+				int kept = 0;
+				for (var t : waiting) {
+					if (t.voice().isStarted()) {
+						latency.record(playAt - t.nanos());
+					} else {
+						waiting.set(kept++, t);
+					}
+				}
+				waiting.subList(kept, waiting.size()).clear();
+
+				maxVoices = Math.max(maxVoices, mixer.getMixedVoices());
+				blocks++;
+				playAt += period;
+			}
+			return new Report(triggers.get(), blocks, underruns, maxVoices, latency, render);
+		} finally {
+			triggerThread.interrupt();
+			triggerThread.join();
+		}
+	}
+
+	private void trigger(long start, long end, ConcurrentLinkedQueue<Trigger> pending, AtomicLong triggers,
+			RandomGenerator rng) throws InterruptedException {
+		long next = start;
+		while (true) {
+			// exponential intervals, as independent events arrive
+			next += (long) (-Math.log1p(-rng.nextDouble()) * 1e9 / triggersPerSecond);
+			if (next >= end) {
+				return;
+			}
+			parkUntil(next);
+			var sound = sounds.get(rng.nextInt(sounds.size()));
+			double shift = semitones == 0 ? 0 : rng.nextDouble(-semitones, semitones);
+			var voice = new Voice(sound, mixer.getSampleRate(), Voice.ratio(shift), GAIN, Interpolation.LINEAR);
+			// queued before it can be mixed, so that its first block is known
+			pending.add(new Trigger(voice, System.nanoTime()));
+			mixer.play(voice);
+			triggers.incrementAndGet();
+		}
+	}
+
+	private static void parkUntil(long deadline) throws InterruptedException {
+		for (long remaining; (remaining = deadline - System.nanoTime()) > 0;) {
+			LockSupport.parkNanos(remaining);
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+		}
+	}
+}
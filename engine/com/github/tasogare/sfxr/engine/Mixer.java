@@ -0,0 +1,122 @@
+package com.github.tasogare.sfxr.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Mixes voices into 8-bit signed mono PCM, the format of {@link Sound#getPcm()}.
+ *
+ * Voices may be started from any thread; they join the mix at the next call of
+ * {@link #mix(byte[], int, int)}, which must always be called from the same
+ * thread, usually the one feeding the audio line. The voice counts may be read
+ * from any thread.
+ *
+ * @author tasogare
+ */
+public class Mixer {
+	private final int sampleRate;
+
+	private final ConcurrentLinkedQueue<Voice> started = new ConcurrentLinkedQueue<>();
+
+	private final ArrayList<Voice> voices = new ArrayList<>();
+
+	private float[] buffer = new float[0];
+
+	private volatile int mixedVoices;
+
+	private volatile int activeVoices;
+
+	/**
+	 * @param sampleRate sample rate of the output
+	 */
+	public Mixer(int sampleRate) {
+		this.sampleRate = sampleRate;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * @param sound         sound to play
+	 * @param semitones     pitch shift in semitones
+	 * @param gain          gain of the voice
+	 * @param interpolation how to resample the sound
+	 * @return the started voice
+	 */
+	public Voice play(Sound sound, double semitones, float gain, Interpolation interpolation) {
+		return play(new Voice(sound, sampleRate, Voice.ratio(semitones), gain, interpolation));
+	}
+
+	/**
+	 * @param voice voice built for the sample rate of this mixer
+	 * @return the voice, started
+	 */
+	public Voice play(Voice voice) {
+		started.add(voice);
+		return voice;
+	}
+
+	/**
+	 * @return the number of voices mixed by the last call of mix, including those
+	 *         that ended during it
+	 */
+	public int getMixedVoices() {
+		return mixedVoices;
+	}
+
+	/**
+	 * @return the number of voices still playing after the last call of mix
+	 */
+	public int getActiveVoices() {
+		return activeVoices;
+	}
+
+	/**
+	 * Mixes the next samples, silence when no voice is playing.
+	 *
+	 * @param out    output buffer
+	 * @param offset first sample of out to write
+	 * @param count  number of samples to write
+	 */
+	public void mix(byte[] out, int offset, int count) {
+		if (buffer.length < count) {
+			buffer = new float[count];
+		}
+		var mixed = buffer;
+		Arrays.fill(mixed, 0, count, 0f);
+		mix(mixed, 0, count);
+		PcmKernels.toPcm(mixed, 0, out, offset, count);
+	}
+
+	/**
+	 * Adds the next samples of every voice to out.
+	 *
+	 * @param out    mix buffer
+	 * @param offset first sample of out to add to
+	 * @param count  number of samples to add
+	 */
+	public void mix(float[] out, int offset, int count) {
+		int before = voices.size();
+		for (Voice voice; (voice = started.poll()) != null;) {
+			voices.add(voice);
+		}
+		mixedVoices = voices.size();
+		int kept = 0;
+		for (int i = 0; i < voices.size(); i++) {
+			var voice = voices.get(i);
+			voice.mix(out, offset, count);
+			if (!voice.isDone()) {
+				voices.set(kept++, voice);
+			}
+		}
+		while (voices.size() > kept) {
+			voices.remove(voices.size() - 1);
+		}
+		activeVoices = kept;
+		if (kept != before) {
+			RenderMetrics.voicesChanged(kept - before);
+		}
+	}
+}
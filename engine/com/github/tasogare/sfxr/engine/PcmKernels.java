@@ -0,0 +1,190 @@
+package com.github.tasogare.sfxr.engine;
+
+/**
+ * Bulk conversion, gain, clamping, mixing and comparison of PCM blocks.
+ *
+ * The kernels use the Vector API when {@code jdk.incubator.vector} is in the
+ * boot layer, that is when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}, and plain loops otherwise. Both
+ * give bit-identical results, so the choice never changes an output. Setting
+ * {@code -Dsfxr.vector=false} forces the plain loops.
+ *
+ * Samples are 8-bit signed PCM scaled by 127, as produced by {@link Synth}.
+ *
+ * @author tasogare
+ */
+public final class PcmKernels {
+	private static final System.Logger logger = System.getLogger(PcmKernels.class.getName());
+
+	/**
+	 * Operations implemented by both the scalar and the vector kernels.
+	 */
+	interface Kernels {
+		void toFloat(byte[] in, int inOffset, float[] out, int outOffset, int count);
+
+		void toDouble(byte[] in, int inOffset, double[] out, int outOffset, int count);
+
+		void toPcm(float[] in, int inOffset, byte[] out, int outOffset, int count);
+
+		void toPcm(double[] in, int inOffset, byte[] out, int outOffset, int count);
+
+		void gain(float[] buffer, int offset, int count, float gain);
+
+		void clamp(float[] buffer, int offset, int count, float min, float max);
+
+		void mix(float[] in, int inOffset, float[] out, int outOffset, int count, float gain);
+
+		int maxDifference(byte[] a, int aOffset, byte[] b, int bOffset, int count);
+
+		long squaredDifference(byte[] a, int aOffset, byte[] b, int bOffset, int count);
+	}
+
+	private static final Kernels SCALAR = new ScalarKernels();
+
+	private static final Kernels KERNELS = select();
+
+	private static Kernels select() {
+		if (Boolean.parseBoolean(System.getProperty("sfxr.vector", "true"))
+				&& ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			try {
+				return new VectorKernels();
+			} catch (LinkageError e) {
+				logger.log(System.Logger.Level.WARNING, "vector kernels unavailable", e);
+			}
+		}
+		return SCALAR;
+	}
+
+	static Kernels kernels() {
+		return KERNELS;
+	}
+
+	static Kernels scalar() {
+		return SCALAR;
+	}
+
+	/**
+	 * @return whether the kernels run on the Vector API
+	 */
+	public static boolean isVectorized() {
+		return KERNELS != SCALAR;
+	}
+
+	/**
+	 * Converts PCM to floats in [-1, 1].
+	 *
+	 * @param in        PCM samples
+	 * @param inOffset  first sample of in
+	 * @param out       float samples
+	 * @param outOffset first sample of out
+	 * @param count     number of samples
+	 */
+	public static void toFloat(byte[] in, int inOffset, float[] out, int outOffset, int count) {
+		KERNELS.toFloat(in, inOffset, out, outOffset, count);
+	}
+
+	/**
+	 * Converts PCM to doubles in [-1, 1].
+	 *
+	 * @param in        PCM samples
+	 * @param inOffset  first sample of in
+	 * @param out       double samples
+	 * @param outOffset first sample of out
+	 * @param count     number of samples
+	 */
+	public static void toDouble(byte[] in, int inOffset, double[] out, int outOffset, int count) {
+		KERNELS.toDouble(in, inOffset, out, outOffset, count);
+	}
+
+	/**
+	 * Clamps floats to [-1, 1] and converts them to PCM, truncating.
+	 *
+	 * @param in        float samples
+	 * @param inOffset  first sample of in
+	 * @param out       PCM samples
+	 * @param outOffset first sample of out
+	 * @param count     number of samples
+	 */
+	public static void toPcm(float[] in, int inOffset, byte[] out, int outOffset, int count) {
+		KERNELS.toPcm(in, inOffset, out, outOffset, count);
+	}
+
+	/**
+	 * Clamps doubles to [-1, 1] and converts them to PCM, truncating.
+	 *
+	 * @param in        double samples
+	 * @param inOffset  first sample of in
+	 * @param out       PCM samples
+	 * @param outOffset first sample of out
+	 * @param count     number of samples
+	 */
+	public static void toPcm(double[] in, int inOffset, byte[] out, int outOffset, int count) {
+		KERNELS.toPcm(in, inOffset, out, outOffset, count);
+	}
+
+	/**
+	 * Multiplies samples by gain.
+	 *
+	 * @param buffer samples
+	 * @param offset first sample
+	 * @param count  number of samples
+	 * @param gain   factor
+	 */
+	public static void gain(float[] buffer, int offset, int count, float gain) {
+		KERNELS.gain(buffer, offset, count, gain);
+	}
+
+	/**
+	 * Limits samples to [min, max].
+	 *
+	 * @param buffer samples
+	 * @param offset first sample
+	 * @param count  number of samples
+	 * @param min    lower limit
+	 * @param max    upper limit
+	 */
+	public static void clamp(float[] buffer, int offset, int count, float min, float max) {
+		KERNELS.clamp(buffer, offset, count, min, max);
+	}
+
+	/**
+	 * Adds {@code gain * in} to out.
+	 *
+	 * @param in        samples to add
+	 * @param inOffset  first sample of in
+	 * @param out       mix buffer
+	 * @param outOffset first sample of out
+	 * @param count     number of samples
+	 * @param gain      factor applied to in
+	 */
+	public static void mix(float[] in, int inOffset, float[] out, int outOffset, int count, float gain) {
+		KERNELS.mix(in, inOffset, out, outOffset, count, gain);
+	}
+
+	/**
+	 * @param a       PCM samples
+	 * @param aOffset first sample of a
+	 * @param b       PCM samples
+	 * @param bOffset first sample of b
+	 * @param count   number of samples
+	 * @return largest absolute difference between two samples
+	 */
+	public static int maxDifference(byte[] a, int aOffset, byte[] b, int bOffset, int count) {
+		return KERNELS.maxDifference(a, aOffset, b, bOffset, count);
+	}
+
+	/**
+	 * @param a       PCM samples
+	 * @param aOffset first sample of a
+	 * @param b       PCM samples
+	 * @param bOffset first sample of b
+	 * @param count   number of samples
+	 * @return sum of the squared differences between two samples
+	 */
+	public static long squaredDifference(byte[] a, int aOffset, byte[] b, int bOffset, int count) {
+		return KERNELS.squaredDifference(a, aOffset, b, bOffset, count);
+	}
+
+	private PcmKernels() {
+	}
+}
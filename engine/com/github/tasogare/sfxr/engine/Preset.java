@@ -213,6 +213,13 @@ public class Preset implements Cloneable {
 		return other;
 	}
 
+	/**
+	 * @return an immutable canonical snapshot of the parameters
+	 */
+	public PresetValue toValue() {
+		return PresetValue.of(this);
+	}
+
 	/**
 	 * @return the arpeggioDepth
 	 */
@@ -864,6 +871,43 @@ public class Preset implements Cloneable {
 		this.repeatSpeed = repeatSpeed;
 	}
 
+	/**
+	 * Sets a numeric parameter by its property name.
+	 *
+	 * @param name  property name, such as {@code attackTime}
+	 * @param value the value to set
+	 * @throws IllegalArgumentException if there is no such parameter
+	 */
+	public void setParameter(String name, double value) {
+		switch (name) {
+		case "startFrequency" -> startFrequency = value;
+		case "minimalFrequency" -> minimalFrequency = value;
+		case "pitchSlide" -> pitchSlide = value;
+		case "pitchDeltaSlide" -> pitchDeltaSlide = value;
+		case "squareDuty" -> squareDuty = value;
+		case "squareDutySlide" -> squareDutySlide = value;
+		case "vibratoStrength" -> vibratoStrength = value;
+		case "vibratoSpeed" -> vibratoSpeed = value;
+		case "attackTime" -> attackTime = value;
+		case "sustainTime" -> sustainTime = value;
+		case "decayTime" -> decayTime = value;
+		case "sustainPunch" -> sustainPunch = value;
+		case "lowpassFilterResonance" -> lowpassFilterResonance = value;
+		case "lowpassFilterCutoff" -> lowpassFilterCutoff = value;
+		case "lowpassFilterCutoffSlide" -> lowpassFilterCutoffSlide = value;
+		case "highpassFilterCutoff" -> highpassFilterCutoff = value;
+		case "highpassFilterCutoffSlide" -> highpassFilterCutoffSlide = value;
+		case "phaserOffset" -> phaserOffset = value;
+		case "phaserSlide" -> phaserSlide = value;
+		case "repeatSpeed" -> repeatSpeed = value;
+		case "arpeggioSpeed" -> arpeggioSpeed = value;
+		case "arpeggioDepth" -> arpeggioDepth = value;
+		case "masterVolume" -> masterVolume = value;
+		case "soundVolume" -> soundVolume = value;
+		default -> throw new IllegalArgumentException("unknown parameter: " + name);
+		}
+	}
+
 	/**
 	 * @param soundVolume the soundVolume to set
 	 */
@@ -0,0 +1,160 @@
+package com.github.tasogare.sfxr.engine;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Immutable snapshot of a {@link Preset}.
+ *
+ * Every parameter is quantized to single precision, with {@code -0.0} folded
+ * into {@code 0.0} and a single NaN, so two presets that only differ below the
+ * quantization step are equal and share a {@link #fingerprint() fingerprint}.
+ *
+ * @author tasogare
+ */
+public record PresetValue(WaveForm waveType, double startFrequency, double minimalFrequency, double pitchSlide,
+		double pitchDeltaSlide, double squareDuty, double squareDutySlide, double vibratoStrength, double vibratoSpeed,
+		double attackTime, double sustainTime, double decayTime, double sustainPunch, double lowpassFilterResonance,
+		double lowpassFilterCutoff, double lowpassFilterCutoffSlide, double highpassFilterCutoff,
+		double highpassFilterCutoffSlide, double phaserOffset, double phaserSlide, double repeatSpeed,
+		double arpeggioSpeed, double arpeggioDepth, double masterVolume, double soundVolume) {
+
+	/**
+	 * @param preset preset to snapshot
+	 * @return the canonical value of preset
+	 */
+	public static PresetValue of(Preset preset) {
+		return new PresetValue(preset.getWaveType(), preset.getStartFrequency(), preset.getMinimalFrequency(),
+				preset.getPitchSlide(), preset.getPitchDeltaSlide(), preset.getSquareDuty(),
+				preset.getSquareDutySlide(), preset.getVibratoStrength(), preset.getVibratoSpeed(),
+				preset.getAttackTime(), preset.getSustainTime(), preset.getDecayTime(), preset.getSustainPunch(),
+				preset.getLowpassFilterResonance(), preset.getLowpassFilterCutoff(),
+				preset.getLowpassFilterCutoffSlide(), preset.getHighpassFilterCutoff(),
+				preset.getHighpassFilterCutoffSlide(), preset.getPhaserOffset(), preset.getPhaserSlide(),
+				preset.getRepeatSpeed(), preset.getArpeggioSpeed(), preset.getArpeggioDepth(),
+				preset.getMasterVolume(), preset.getSoundVolume());
+	}
+
+	private static double canonical(double v) {
+		if (Double.isNaN(v)) {
+			return Double.NaN;
+		}
+		float f = (float) v;
+		return f == 0.0f ? 0.0 : f;
+	}
+
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	static long combine(long h, long v) {
+		return Long.rotateLeft(h ^ mix(v), 27) * 0x9E3779B97F4A7C15L;
+	}
+
+	private static long combine(long h, double v) {
+		return combine(h, Double.doubleToLongBits(v));
+	}
+
+	public PresetValue {
+		requireNonNull(waveType);
+		startFrequency = canonical(startFrequency);
+		minimalFrequency = canonical(minimalFrequency);
+		pitchSlide = canonical(pitchSlide);
+		pitchDeltaSlide = canonical(pitchDeltaSlide);
+		squareDuty = canonical(squareDuty);
+		squareDutySlide = canonical(squareDutySlide);
+		vibratoStrength = canonical(vibratoStrength);
+		vibratoSpeed = canonical(vibratoSpeed);
+		attackTime = canonical(attackTime);
+		sustainTime = canonical(sustainTime);
+		decayTime = canonical(decayTime);
+		sustainPunch = canonical(sustainPunch);
+		lowpassFilterResonance = canonical(lowpassFilterResonance);
+		lowpassFilterCutoff = canonical(lowpassFilterCutoff);
+		lowpassFilterCutoffSlide = canonical(lowpassFilterCutoffSlide);
+		highpassFilterCutoff = canonical(highpassFilterCutoff);
+		highpassFilterCutoffSlide = canonical(highpassFilterCutoffSlide);
+		phaserOffset = canonical(phaserOffset);
+		phaserSlide = canonical(phaserSlide);
+		repeatSpeed = canonical(repeatSpeed);
+		arpeggioSpeed = canonical(arpeggioSpeed);
+		arpeggioDepth = canonical(arpeggioDepth);
+		masterVolume = canonical(masterVolume);
+		soundVolume = canonical(soundVolume);
+	}
+
+	/**
+	 * The fingerprint only depends on the canonical parameters, so it is stable
+	 * across runs, JVMs and platforms.
+	 *
+	 * @return 64-bit fingerprint of the parameters
+	 */
+	public long fingerprint() {
+		long h = waveType.ordinal();
+		h = combine(h, startFrequency);
+		h = combine(h, minimalFrequency);
+		h = combine(h, pitchSlide);
+		h = combine(h, pitchDeltaSlide);
+		h = combine(h, squareDuty);
+		h = combine(h, squareDutySlide);
+		h = combine(h, vibratoStrength);
+		h = combine(h, vibratoSpeed);
+		h = combine(h, attackTime);
+		h = combine(h, sustainTime);
+		h = combine(h, decayTime);
+		h = combine(h, sustainPunch);
+		h = combine(h, lowpassFilterResonance);
+		h = combine(h, lowpassFilterCutoff);
+		h = combine(h, lowpassFilterCutoffSlide);
+		h = combine(h, highpassFilterCutoff);
+		h = combine(h, highpassFilterCutoffSlide);
+		h = combine(h, phaserOffset);
+		h = combine(h, phaserSlide);
+		h = combine(h, repeatSpeed);
+		h = combine(h, arpeggioSpeed);
+		h = combine(h, arpeggioDepth);
+		h = combine(h, masterVolume);
+		h = combine(h, soundVolume);
+		return mix(h);
+	}
+
+	@Override
+	public int hashCode() {
+		long fingerprint = fingerprint();
+		return (int) (fingerprint ^ (fingerprint >>> 32));
+	}
+
+	/**
+	 * @return a new mutable preset holding these parameters
+	 */
+	public Preset toPreset() {
+		var preset = new Preset();
+		preset.setWaveType(waveType);
+		preset.setStartFrequency(startFrequency);
+		preset.setMinimalFrequency(minimalFrequency);
+		preset.setPitchSlide(pitchSlide);
+		preset.setPitchDeltaSlide(pitchDeltaSlide);
+		preset.setSquareDuty(squareDuty);
+		preset.setSquareDutySlide(squareDutySlide);
+		preset.setVibratoStrength(vibratoStrength);
+		preset.setVibratoSpeed(vibratoSpeed);
+		preset.setAttackTime(attackTime);
+		preset.setSustainTime(sustainTime);
+		preset.setDecayTime(decayTime);
+		preset.setSustainPunch(sustainPunch);
+		preset.setLowpassFilterResonance(lowpassFilterResonance);
+		preset.setLowpassFilterCutoff(lowpassFilterCutoff);
+		preset.setLowpassFilterCutoffSlide(lowpassFilterCutoffSlide);
+		preset.setHighpassFilterCutoff(highpassFilterCutoff);
+		preset.setHighpassFilterCutoffSlide(highpassFilterCutoffSlide);
+		preset.setPhaserOffset(phaserOffset);
+		preset.setPhaserSlide(phaserSlide);
+		preset.setRepeatSpeed(repeatSpeed);
+		preset.setArpeggioSpeed(arpeggioSpeed);
+		preset.setArpeggioDepth(arpeggioDepth);
+		preset.setMasterVolume(masterVolume);
+		preset.setSoundVolume(soundVolume);
+		return preset;
+	}
+}
@@ -0,0 +1,211 @@
+package com.github.tasogare.sfxr.engine;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a {@link SoundRegistry} in sync with a directory of sfp files.
+ *
+ * Every preset is rendered on a background thread and stored under its file
+ * name without extension. Bursts of events are settled before rendering, and a
+ * preset changing again while queued or rendering is rendered once more with
+ * its latest content, so editors saving repeatedly don't pile up renders. A
+ * file that can't be read, usually because it is still being written, keeps
+ * its previous sound, and so does a preset that fails to render or whose sound
+ * is longer than a limit.
+ *
+ * @author tasogare
+ */
+public class PresetWatcher implements AutoCloseable {
+	private static final System.Logger logger = System.getLogger(PresetWatcher.class.getName());
+
+	private static final String SUFFIX = ".sfp";
+
+	private static final long SETTLE_MILLIS = 50;
+
+	private final Path directory;
+
+	private final SoundRegistry registry;
+
+	private final long seed;
+
+	private final int maxSamples;
+
+	private final WatchService watchService;
+
+	private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+	private final LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<>();
+
+	private Thread watcher;
+
+	private Thread renderer;
+
+	/**
+	 * @param directory directory of the presets
+	 * @param registry  registry receiving the sounds
+	 * @param seed      random seed of every render
+	 * @throws IOException if the directory can't be watched
+	 */
+	public PresetWatcher(Path directory, SoundRegistry registry, long seed) throws IOException {
+		this(directory, registry, seed, RenderCost.MAX_SAMPLES);
+	}
+
+	/**
+	 * @param directory  directory of the presets
+	 * @param registry   registry receiving the sounds
+	 * @param seed       random seed of every render
+	 * @param maxSamples length of the longest sound rendered
+	 * @throws IOException if the directory can't be watched
+	 */
+	public PresetWatcher(Path directory, SoundRegistry registry, long seed, int maxSamples) throws IOException {
+		this.directory = directory;
+		this.registry = registry;
+		this.seed = seed;
+		this.maxSamples = maxSamples;
+		this.watchService = directory.getFileSystem().newWatchService();
+		directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+	}
+
+	/**
+	 * Queues every preset of the directory and starts watching it.
+	 *
+	 * @throws IOException if the directory can't be listed
+	 */
+	public synchronized void start() throws IOException {
+		if (watcher != null) {
+			throw new IllegalStateException("already started");
+		}
+		scan();
+		renderer = Thread.ofPlatform().name("preset-renderer").daemon().start(this::render);
+		watcher = Thread.ofPlatform().name("preset-watcher").daemon().start(this::watch);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		watchService.close();
+		if (renderer != null) {
+			renderer.interrupt();
+		}
+	}
+
+	private void scan() throws IOException {
+		try (var files = Files.list(directory)) {
+			files.forEach(file -> schedule(file.getFileName()));
+		}
+	}
+
+	private void watch() {
+		try {
+			while (true) {
+				var changed = new LinkedHashSet<Path>();
+				var overflow = false;
+				var key = watchService.take();
+				do {
+					for (var event : key.pollEvents()) {
+						if (event.kind() == OVERFLOW) {
+							overflow = true;
+						} else {
+							changed.add((Path) event.context());
+						}
+					}
+					key.reset();
+				} while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+
+				if (overflow) {
+					rescan();
+				}
+				changed.forEach(this::schedule);
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// closed
+		}
+	}
+
+	/**
+	 * Events were lost, so everything is reloaded.
+	 */
+	private void rescan() {
+		try {
+			scan();
+		} catch (IOException e) {
+			logger.log(System.Logger.Level.ERROR, "can't rescan " + directory, e);
+		}
+		registry.names().stream().filter(name -> !Files.exists(fileOf(name))).forEach(this::schedule);
+	}
+
+	private void schedule(Path fileName) {
+		var name = fileName.toString();
+		if (name.endsWith(SUFFIX)) {
+			schedule(name.substring(0, name.length() - SUFFIX.length()));
+		}
+	}
+
+	private void schedule(String name) {
+		if (pending.add(name)) {
+			queue.add(name);
+		}
+	}
+
+	private void render() {
+		try {
+			while (true) {
+				var name = queue.take();
+				// later changes queue the name again
+				pending.remove(name);
+				reload(name);
+			}
+		} catch (InterruptedException e) {
+			// closed
+		}
+	}
+
+	private void reload(String name) {
+		Preset preset;
+		try (var is = new BufferedInputStream(Files.newInputStream(fileOf(name)))) {
+			preset = PresetXml.read(is);
+		} catch (NoSuchFileException e) {
+			if (registry.remove(name) != null) {
+				logger.log(System.Logger.Level.INFO, "removed " + name);
+			}
+			return;
+		} catch (IOException | RuntimeException e) {
+			logger.log(System.Logger.Level.WARNING, "can't read " + name + ", keeping the previous sound", e);
+			return;
+		}
+		var rendered = preset.toValue().toPreset();
+		var cost = RenderCost.of(rendered);
+		if (cost.exceeds(maxSamples)) {
+			logger.log(System.Logger.Level.WARNING,
+					String.format("%s: sound of %.1f s is too long, keeping the previous sound", name, cost.seconds()));
+			return;
+		}
+		try {
+			registry.put(name, Sound.fromPreset(rendered, seed));
+		} catch (RuntimeException e) {
+			// the thread must survive a bad preset, or every later edit is lost
+			logger.log(System.Logger.Level.ERROR, "can't render " + name + ", keeping the previous sound", e);
+			return;
+		}
+		logger.log(System.Logger.Level.DEBUG, "reloaded " + name);
+	}
+
+	private Path fileOf(String name) {
+		return directory.resolve(name + SUFFIX);
+	}
+}
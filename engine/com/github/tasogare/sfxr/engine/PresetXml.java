@@ -0,0 +1,128 @@
+package com.github.tasogare.sfxr.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads and writes sfp files without {@code java.beans}.
+ *
+ * The format is the one {@code java.beans.XMLEncoder} produces for a
+ * {@link Preset}, so files stay interchangeable with the editor.
+ *
+ * @author tasogare
+ */
+public final class PresetXml {
+	private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+	private static XMLInputFactory createInputFactory() {
+		var factory = XMLInputFactory.newFactory();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+
+	/**
+	 * @param is sfp stream
+	 * @return the preset read, with defaults for missing properties
+	 * @throws IOException if the stream can't be read or isn't a preset
+	 */
+	public static Preset read(InputStream is) throws IOException {
+		var preset = new Preset();
+		try {
+			var reader = INPUT_FACTORY.createXMLStreamReader(is);
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("void")) {
+						var property = reader.getAttributeValue(null, "property");
+						if (property != null) {
+							readProperty(reader, preset, property);
+						}
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException | IllegalArgumentException e) {
+			throw new IOException(e);
+		}
+		return preset;
+	}
+
+	private static void readProperty(XMLStreamReader reader, Preset preset, String property)
+			throws XMLStreamException {
+		reader.nextTag();
+		if (property.equals("waveType")) {
+			// <object class="java.lang.Enum" method="valueOf"><class/><string/></object>
+			reader.nextTag();
+			reader.getElementText();
+			reader.nextTag();
+			preset.setWaveType(WaveForm.valueOf(reader.getElementText().trim()));
+			return;
+		}
+		preset.setParameter(property, Double.parseDouble(reader.getElementText().trim()));
+	}
+
+	/**
+	 * @param preset preset to write
+	 * @param os     sfp stream, left open
+	 * @throws IOException if the stream can't be written
+	 */
+	public static void write(Preset preset, OutputStream os) throws IOException {
+		var writer = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		writer.write("<java version=\"" + System.getProperty("java.version")
+				+ "\" class=\"java.beans.XMLDecoder\">\n");
+		writer.write(" <object class=\"" + Preset.class.getName() + "\">\n");
+		writeProperty(writer, "arpeggioDepth", preset.getArpeggioDepth());
+		writeProperty(writer, "arpeggioSpeed", preset.getArpeggioSpeed());
+		writeProperty(writer, "attackTime", preset.getAttackTime());
+		writeProperty(writer, "decayTime", preset.getDecayTime());
+		writeProperty(writer, "highpassFilterCutoff", preset.getHighpassFilterCutoff());
+		writeProperty(writer, "highpassFilterCutoffSlide", preset.getHighpassFilterCutoffSlide());
+		writeProperty(writer, "lowpassFilterCutoff", preset.getLowpassFilterCutoff());
+		writeProperty(writer, "lowpassFilterCutoffSlide", preset.getLowpassFilterCutoffSlide());
+		writeProperty(writer, "lowpassFilterResonance", preset.getLowpassFilterResonance());
+		writeProperty(writer, "masterVolume", preset.getMasterVolume());
+		writeProperty(writer, "minimalFrequency", preset.getMinimalFrequency());
+		writeProperty(writer, "phaserOffset", preset.getPhaserOffset());
+		writeProperty(writer, "phaserSlide", preset.getPhaserSlide());
+		writeProperty(writer, "pitchDeltaSlide", preset.getPitchDeltaSlide());
+		writeProperty(writer, "pitchSlide", preset.getPitchSlide());
+		writeProperty(writer, "repeatSpeed", preset.getRepeatSpeed());
+		writeProperty(writer, "soundVolume", preset.getSoundVolume());
+		writeProperty(writer, "squareDuty", preset.getSquareDuty());
+		writeProperty(writer, "squareDutySlide", preset.getSquareDutySlide());
+		writeProperty(writer, "startFrequency", preset.getStartFrequency());
+		writeProperty(writer, "sustainPunch", preset.getSustainPunch());
+		writeProperty(writer, "sustainTime", preset.getSustainTime());
+		writeProperty(writer, "vibratoSpeed", preset.getVibratoSpeed());
+		writeProperty(writer, "vibratoStrength", preset.getVibratoStrength());
+		writer.write("  <void property=\"waveType\">\n");
+		writer.write("   <object class=\"java.lang.Enum\" method=\"valueOf\">\n");
+		writer.write("    <class>" + WaveForm.class.getName() + "</class>\n");
+		writer.write("    <string>" + preset.getWaveType().name() + "</string>\n");
+		writer.write("   </object>\n");
+		writer.write("  </void>\n");
+		writer.write(" </object>\n");
+		writer.write("</java>\n");
+		writer.flush();
+	}
+
+	private static void writeProperty(Writer writer, String property, double value) throws IOException {
+		writer.write("  <void property=\"" + property + "\">\n");
+		writer.write("   <double>" + value + "</double>\n");
+		writer.write("  </void>\n");
+	}
+
+	private PresetXml() {
+	}
+}
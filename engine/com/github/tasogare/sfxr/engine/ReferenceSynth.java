@@ -20,15 +20,18 @@ package com.github.tasogare.sfxr.engine;
 import java.util.random.RandomGenerator;
 
 /**
- * @author Eiyeron, tasogare
- * @version 1.00
+ * The synthesis of {@link Synth} as it was before any optimization, one
+ * sample at a time without kernels or blocks.
+ *
+ * It is frozen: the differential harness renders the same presets with it and
+ * with the optimized engines, and reports every sample that changed. Never
+ * change it unless {@link Synth#VERSION} changes.
  *
- *          Synth is the SFXR++ Sound Synth. It's used to generate sound from
- *          presets and give Sound as results.
+ * @author Eiyeron, tasogare
  */
-public class Synth {
+final class ReferenceSynth {
 
-	private Preset preset;
+	private final Preset preset;
 
 	private boolean playingSample = false;
 	private int phase;
@@ -65,29 +68,25 @@ public class Synth {
 	private int arpTime;
 	private int arpLimit;
 	private double arpMod;
+	private final int length;
 
-	/**
-	 *
-	 * @param preset don't synth directly.
-	 * @param rng
-	 */
-	public Synth(Preset preset, RandomGenerator rng) {
+	ReferenceSynth(Preset preset, RandomGenerator rng) {
 		this.preset = preset;
 		resetSample(rng, false);
 		playingSample = true;
+		length = envLength[0] + envLength[1] + envLength[2];
 	}
 
 	/**
-	 * @return Sound of the Preset given
+	 * @return the whole sound as signed 8-bit PCM
 	 */
-	public Sound createSound(RandomGenerator rng) {
-		final int LENGTH = envLength[0] + envLength[1] + envLength[2];
-		var bytes = new byte[LENGTH];
-		for (int i = 0; i < bytes.length; i++) {
+	byte[] render(RandomGenerator rng) {
+		var bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
 			double synth = synthSample(rng);
 			bytes[i] = (byte) (synth * 127f);
 		}
-		return new Sound(bytes, 44100);
+		return bytes;
 	}
 
 	private void resetSample(RandomGenerator rng, boolean restart) {
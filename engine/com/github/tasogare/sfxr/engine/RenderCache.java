@@ -0,0 +1,242 @@
+package com.github.tasogare.sfxr.engine;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent content-addressed cache of rendered sounds.
+ *
+ * Entries are keyed by the {@link PresetValue#fingerprint() fingerprint} of the
+ * preset, the seed and {@link Synth#VERSION}, so a cache directory survives
+ * restarts and is invalidated by engine changes. Misses render the canonical
+ * preset, so an entry only depends on its key.
+ *
+ * Entries are read whole, without a memory mapping that would keep the file
+ * from being replaced or deleted on Windows, and the least recently used ones
+ * are evicted once the directory grows past its size limit.
+ *
+ * @author tasogare
+ */
+public class RenderCache {
+	private static final int MAGIC = 0x53465852;
+
+	private static final int HEADER_SIZE = 32;
+
+	private static final String SUFFIX = ".pcm";
+
+	/**
+	 * @param preset preset to render
+	 * @param seed   random seed
+	 * @return the content address of the sound rendered from preset and seed
+	 */
+	public static long key(PresetValue preset, long seed) {
+		long h = PresetValue.combine(Synth.VERSION, seed);
+		return PresetValue.mix(PresetValue.combine(h, preset.fingerprint()));
+	}
+
+	private final Path directory;
+
+	private final long maxBytes;
+
+	/**
+	 * Total size of the entries, only updated while holding the lock of the
+	 * cache so that stores and evictions don't lose each other's updates.
+	 */
+	private final AtomicLong size = new AtomicLong();
+
+	/**
+	 * @param directory cache directory, created if missing
+	 * @param maxBytes  size limit of the directory
+	 * @throws IOException if the directory can't be created or scanned
+	 */
+	public RenderCache(Path directory, long maxBytes) throws IOException {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("maxBytes: " + maxBytes);
+		}
+		this.directory = Files.createDirectories(directory);
+		this.maxBytes = maxBytes;
+		try (var files = Files.list(directory)) {
+			size.set(files.filter(RenderCache::isEntry).mapToLong(RenderCache::sizeOf).sum());
+		}
+	}
+
+	/**
+	 * Looks the sound up, rendering and storing it on a miss.
+	 *
+	 * @param preset preset to render
+	 * @param seed   random seed
+	 * @return the cached or freshly rendered sound
+	 * @throws IOException if the cache can't be read or written
+	 */
+	public Sound get(PresetValue preset, long seed) throws IOException {
+		long key = key(preset, seed);
+		var cached = lookup(key, seed);
+		if (cached.isPresent()) {
+			return cached.get();
+		}
+		var sound = Sound.fromPreset(preset.toPreset(), seed);
+		store(key, seed, sound);
+		return sound;
+	}
+
+	/**
+	 * @param preset preset to render
+	 * @param seed   random seed
+	 * @return the cached sound, or empty on a miss
+	 * @throws IOException if the cache can't be read
+	 */
+	public Optional<Sound> lookup(PresetValue preset, long seed) throws IOException {
+		return lookup(key(preset, seed), seed);
+	}
+
+	/**
+	 * @param preset preset the sound was rendered from
+	 * @param seed   random seed the sound was rendered with
+	 * @param sound  rendered sound
+	 * @throws IOException if the cache can't be written
+	 */
+	public void put(PresetValue preset, long seed, Sound sound) throws IOException {
+		store(key(preset, seed), seed, sound);
+	}
+
+	/**
+	 * @return total size of the cached entries in bytes
+	 */
+	public long size() {
+		return size.get();
+	}
+
+	private Optional<Sound> lookup(long key, long seed) throws IOException {
+		var event = new CacheLookupEvent();
+		event.begin();
+		var sound = read(key, seed);
+		RenderMetrics.looked(sound.isPresent());
+		if (event.shouldCommit()) {
+			event.key = key;
+			event.hit = sound.isPresent();
+			event.samples = sound.map(s -> s.getPcm().length).orElse(0);
+			event.commit();
+		}
+		return sound;
+	}
+
+	private Optional<Sound> read(long key, long seed) throws IOException {
+		var path = pathOf(key);
+		byte[] bytes;
+		try {
+			bytes = Files.readAllBytes(path);
+		} catch (NoSuchFileException e) {
+			return Optional.empty();
+		}
+		if (bytes.length < HEADER_SIZE) {
+			return Optional.empty();
+		}
+		var buffer = ByteBuffer.wrap(bytes);
+		if (buffer.getInt() != MAGIC || buffer.getInt() != Synth.VERSION || buffer.getLong() != key
+				|| buffer.getLong() != seed) {
+			return Optional.empty();
+		}
+		int sampleRate = buffer.getInt();
+		int length = buffer.getInt();
+		if (length != bytes.length - HEADER_SIZE) {
+			return Optional.empty();
+		}
+		var pcm = Arrays.copyOfRange(bytes, HEADER_SIZE, bytes.length);
+		try {
+			Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (NoSuchFileException e) {
+			// evicted meanwhile, the sound is still good
+		}
+		return Optional.of(new Sound(pcm, sampleRate));
+	}
+
+	private void store(long key, long seed, Sound sound) throws IOException {
+		var pcm = sound.getPcm();
+		var header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(Synth.VERSION).putLong(key).putLong(seed);
+		header.putInt(sound.getSampleRate()).putInt(pcm.length).flip();
+
+		var path = pathOf(key);
+		var temp = Files.createTempFile(directory, null, ".tmp");
+		try {
+			try (var channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				var body = ByteBuffer.wrap(pcm);
+				while (header.hasRemaining() || body.hasRemaining()) {
+					channel.write(new ByteBuffer[] { header, body });
+				}
+			}
+			synchronized (this) {
+				long previous = sizeOf(path);
+				Files.move(temp, path, ATOMIC_MOVE, REPLACE_EXISTING);
+				size.addAndGet(HEADER_SIZE + pcm.length - previous);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		if (size.get() > maxBytes) {
+			evict();
+		}
+	}
+
+	private synchronized void evict() throws IOException {
+		var entries = new ArrayList<Path>();
+		try (var files = Files.list(directory)) {
+			files.filter(RenderCache::isEntry).forEach(entries::add);
+		}
+		entries.sort(Comparator.comparing(RenderCache::lastModifiedTime));
+		long total = entries.stream().mapToLong(RenderCache::sizeOf).sum();
+		for (var entry : entries) {
+			if (total <= maxBytes) {
+				break;
+			}
+			long entrySize = sizeOf(entry);
+			if (Files.deleteIfExists(entry)) {
+				total -= entrySize;
+			}
+		}
+		size.set(total);
+	}
+
+	private Path pathOf(long key) {
+		return directory.resolve(String.format("%016x%s", key, SUFFIX));
+	}
+
+	private static boolean isEntry(Path path) {
+		return path.getFileName().toString().endsWith(SUFFIX);
+	}
+
+	private static FileTime lastModifiedTime(Path path) {
+		try {
+			return Files.getLastModifiedTime(path);
+		} catch (NoSuchFileException e) {
+			return FileTime.fromMillis(0);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static long sizeOf(Path path) {
+		try {
+			return Files.size(path);
+		} catch (NoSuchFileException e) {
+			return 0;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package com.github.tasogare.sfxr.engine;
+
+/**
+ * Cost of rendering a preset, computed from its parameters without rendering.
+ *
+ * The length is exact: the envelope has three stages of {@code time² · 100000}
+ * samples each, computed as {@link Synth} does. Repeats restart the pitch but
+ * not the envelope, so they never change the length. The work counts the eight
+ * supersamples of every sample, weighted by the relative cost of the wave form;
+ * it only serves to compare presets.
+ *
+ * @param samples number of samples, which may exceed what an array can hold
+ * @param work    relative cost of the synthesis, in square wave supersamples
+ * @author tasogare
+ */
+public record RenderCost(long samples, long work) {
+	/**
+	 * Limit above every sound of the editor, whose envelope times are in [0, 1],
+	 * and of {@link Preset#random}, which stretches short envelopes up to 374000
+	 * samples. Only hand-edited presets go beyond it.
+	 */
+	public static final int MAX_SAMPLES = 400_000;
+
+	private static final int SUPERSAMPLES = 8;
+
+	/**
+	 * @param preset preset to render
+	 * @return its cost
+	 */
+	public static RenderCost of(Preset preset) {
+		long samples = stage(preset.getAttackTime()) + stage(preset.getSustainTime()) + stage(preset.getDecayTime());
+		return new RenderCost(samples, (long) (samples * SUPERSAMPLES * weight(preset.getWaveType())));
+	}
+
+	private static long stage(double time) {
+		// saturates as the cast of Synth does
+		return (int) (time * time * 100000.0f);
+	}
+
+	/**
+	 * @return time per supersample relative to a square wave, as measured on
+	 *         x86-64; the trigonometric forms dominate everything else
+	 */
+	private static double weight(WaveForm waveForm) {
+		return switch (waveForm) {
+		case SQUARE -> 1.0;
+		case SAWTOOTH -> 1.2;
+		case TRIANGLE, BREAKER -> 1.3;
+		case NOISE -> 1.4;
+		case SINE -> 3.5;
+		case TAN -> 3.7;
+		case WHISTLE -> 4.4;
+		};
+	}
+
+	/**
+	 * @return duration of the sound in seconds
+	 */
+	public double seconds() {
+		return (double) samples / Synth.SAMPLE_RATE;
+	}
+
+	/**
+	 * @param maxSamples limit
+	 * @return whether the sound is longer than the limit
+	 */
+	public boolean exceeds(long maxSamples) {
+		return samples > maxSamples;
+	}
+}
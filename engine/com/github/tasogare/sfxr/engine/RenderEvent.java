@@ -0,0 +1,27 @@
+package com.github.tasogare.sfxr.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning the synthesis of a whole sound.
+ *
+ * @author tasogare
+ */
+@Name("tasogare.sfxr.Render")
+@Label("Render")
+@Category({ "SFXR", "Engine" })
+@Description("Synthesis of a whole sound by Synth")
+final class RenderEvent extends Event {
+	@Label("Preset Fingerprint")
+	long fingerprint;
+
+	@Label("Samples")
+	int samples;
+
+	@Label("Wave Form")
+	String waveForm;
+}
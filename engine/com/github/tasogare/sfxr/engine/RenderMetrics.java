@@ -0,0 +1,112 @@
+package com.github.tasogare.sfxr.engine;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters of the engine, for monitoring.
+ *
+ * The engine only adds to them, once per sound, cache lookup, file or change of
+ * the voices of a mixer, never per sample, so they cost nothing measurable.
+ * Reading them is left to a monitoring surface such as an MXBean.
+ *
+ * @author tasogare
+ */
+public final class RenderMetrics {
+	private static final LongAdder sounds = new LongAdder();
+
+	private static final LongAdder samples = new LongAdder();
+
+	private static final LongAdder bytesWritten = new LongAdder();
+
+	private static final LongAdder cacheHits = new LongAdder();
+
+	private static final LongAdder cacheMisses = new LongAdder();
+
+	private static final AtomicInteger activeVoices = new AtomicInteger();
+
+	private static final Map<WaveForm, LatencyHistogram> renderTimes = createRenderTimes();
+
+	private static Map<WaveForm, LatencyHistogram> createRenderTimes() {
+		var times = new EnumMap<WaveForm, LatencyHistogram>(WaveForm.class);
+		for (var waveForm : WaveForm.values()) {
+			times.put(waveForm, new LatencyHistogram());
+		}
+		return Collections.unmodifiableMap(times);
+	}
+
+	static void rendered(WaveForm waveForm, int length, long nanos) {
+		sounds.increment();
+		samples.add(length);
+		renderTimes.get(waveForm).record(nanos);
+	}
+
+	static void written(long bytes) {
+		bytesWritten.add(bytes);
+	}
+
+	static void looked(boolean hit) {
+		(hit ? cacheHits : cacheMisses).increment();
+	}
+
+	static void voicesChanged(int delta) {
+		activeVoices.addAndGet(delta);
+	}
+
+	/**
+	 * @return number of sounds rendered by {@link Synth#createSound}
+	 */
+	public static long getSoundsRendered() {
+		return sounds.sum();
+	}
+
+	/**
+	 * @return number of samples of those sounds
+	 */
+	public static long getSamplesRendered() {
+		return samples.sum();
+	}
+
+	/**
+	 * @return number of bytes written by {@link WaveWriter}
+	 */
+	public static long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	/**
+	 * @return number of {@link RenderCache} lookups that found the sound
+	 */
+	public static long getCacheHits() {
+		return cacheHits.sum();
+	}
+
+	/**
+	 * @return number of {@link RenderCache} lookups that did not
+	 */
+	public static long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+
+	/**
+	 * @return number of voices playing in every {@link Mixer}, as of their last
+	 *         mix
+	 */
+	public static int getActiveVoices() {
+		return activeVoices.get();
+	}
+
+	/**
+	 * @param waveForm wave form of the presets
+	 * @return the render times of the sounds of that wave form
+	 */
+	public static LatencyHistogram getRenderTime(WaveForm waveForm) {
+		return renderTimes.get(waveForm);
+	}
+
+	private RenderMetrics() {
+	}
+}
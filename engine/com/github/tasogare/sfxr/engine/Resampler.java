@@ -0,0 +1,295 @@
+package com.github.tasogare.sfxr.engine;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Polyphase windowed-sinc sample rate converter.
+ *
+ * The conversion ratio is reduced to {@code L/M}, and a Kaiser-windowed sinc
+ * is tabulated once for each of the {@code L} output phases, so every output
+ * sample is a single dot product of {@code taps} coefficients with the last
+ * input samples. The cutoff follows the lower of both rates, so downsampling
+ * doesn't alias.
+ *
+ * Blocks are processed in place of a stream: the output is delayed by
+ * {@code taps / 2} input samples, which {@link #flush(float[], int)} pushes out
+ * at the end. Nothing is allocated once the converter is built.
+ *
+ * @author tasogare
+ */
+public final class Resampler {
+	/**
+	 * Default number of taps per phase, about 80 dB of stopband attenuation.
+	 */
+	public static final int DEFAULT_TAPS = 32;
+
+	/**
+	 * Largest number of phases, which bounds the table to a few hundred kB.
+	 */
+	private static final int MAX_PHASES = 4096;
+
+	private static final double KAISER_BETA = 8.0;
+
+	/**
+	 * Fraction of the lower Nyquist frequency passed, the rest is the transition
+	 * band.
+	 */
+	private static final double ROLLOFF = 0.95;
+
+	/**
+	 * Tables by interpolation, decimation and taps. They are never modified, so
+	 * converters of the same ratio share them.
+	 */
+	private static final Map<List<Integer>, float[]> TABLES = new ConcurrentHashMap<>();
+
+	/**
+	 * Converts a whole sound.
+	 *
+	 * @param sound      sound to convert
+	 * @param outputRate sample rate of the result
+	 * @return the sound at outputRate, or sound itself if it is at that rate
+	 */
+	public static Sound resample(Sound sound, int outputRate) {
+		if (sound.getSampleRate() == outputRate) {
+			return sound;
+		}
+		var resampler = new Resampler(sound.getSampleRate(), outputRate);
+		var pcm = sound.getPcm();
+		var in = new float[pcm.length];
+		PcmKernels.toFloat(pcm, 0, in, 0, pcm.length);
+		var out = new float[resampler.maxOutput(pcm.length + resampler.getDelay())];
+		int n = resampler.process(in, 0, in.length, out, 0);
+		n += resampler.flush(out, n);
+		var result = new byte[n];
+		PcmKernels.toPcm(out, 0, result, 0, n);
+		return new Sound(result, outputRate);
+	}
+
+	private static double bessel0(double x) {
+		double sum = 1;
+		double term = 1;
+		for (int k = 1; term > sum * 1e-12; k++) {
+			double half = x / (2 * k);
+			term *= half * half;
+			sum += term;
+		}
+		return sum;
+	}
+
+	private static int gcd(int a, int b) {
+		while (b != 0) {
+			int t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	private final int inputRate;
+
+	private final int outputRate;
+
+	private final int interpolation;
+
+	private final int decimation;
+
+	private final int taps;
+
+	/**
+	 * Coefficients of every phase, oldest input sample first.
+	 */
+	private final float[] table;
+
+	/**
+	 * The last taps input samples, stored twice so they are always contiguous.
+	 */
+	private final float[] history;
+
+	private final float[] zeros;
+
+	private int position;
+
+	private int phase;
+
+	private int warmup;
+
+	/**
+	 * @param inputRate  sample rate of the input
+	 * @param outputRate sample rate of the output
+	 */
+	public Resampler(int inputRate, int outputRate) {
+		this(inputRate, outputRate, DEFAULT_TAPS);
+	}
+
+	/**
+	 * @param inputRate  sample rate of the input
+	 * @param outputRate sample rate of the output
+	 * @param taps       even number of taps per phase, more for a steeper filter
+	 */
+	public Resampler(int inputRate, int outputRate, int taps) {
+		if (inputRate <= 0 || outputRate <= 0) {
+			throw new IllegalArgumentException("rates: " + inputRate + ", " + outputRate);
+		}
+		if (taps < 2 || taps % 2 != 0) {
+			throw new IllegalArgumentException("taps: " + taps);
+		}
+		int divisor = gcd(inputRate, outputRate);
+		this.inputRate = inputRate;
+		this.outputRate = outputRate;
+		this.interpolation = outputRate / divisor;
+		this.decimation = inputRate / divisor;
+		if (interpolation > MAX_PHASES) {
+			throw new IllegalArgumentException("ratio too fine: " + interpolation + "/" + decimation);
+		}
+		this.taps = taps;
+		this.table = TABLES.computeIfAbsent(List.of(interpolation, decimation, taps), _ -> createTable());
+		this.history = new float[2 * taps];
+		this.zeros = new float[taps / 2];
+		reset();
+	}
+
+	private float[] createTable() {
+		int half = taps / 2;
+		double cutoff = 0.5 * Math.min(1.0, (double) interpolation / decimation) * ROLLOFF;
+		double norm = bessel0(KAISER_BETA);
+		var coefficients = new float[interpolation * taps];
+		var row = new double[taps];
+		for (int p = 0; p < interpolation; p++) {
+			double sum = 0;
+			for (int k = 0; k < taps; k++) {
+				// distance from the output time to the input sample read by tap k
+				double u = taps - 1 - k - half + (double) p / interpolation;
+				double x = 2 * cutoff * u;
+				double sinc = x == 0 ? 1 : Math.sin(Math.PI * x) / (Math.PI * x);
+				double r = u / half;
+				double window = r * r >= 1 ? 0 : bessel0(KAISER_BETA * Math.sqrt(1 - r * r)) / norm;
+				row[k] = sinc * window;
+				sum += row[k];
+			}
+			for (int k = 0; k < taps; k++) {
+				coefficients[p * taps + k] = (float) (row[k] / sum);
+			}
+		}
+		return coefficients;
+	}
+
+	public int getInputRate() {
+		return inputRate;
+	}
+
+	public int getOutputRate() {
+		return outputRate;
+	}
+
+	/**
+	 * @return the number of input samples held back until {@link #flush}
+	 */
+	public int getDelay() {
+		return taps / 2;
+	}
+
+	/**
+	 * @param count number of input samples
+	 * @return an upper bound of the output samples of {@link #process} for count
+	 *         input samples
+	 */
+	public int maxOutput(int count) {
+		return (int) Math.min(Integer.MAX_VALUE, (long) count * interpolation / decimation + 2);
+	}
+
+	/**
+	 * @param count number of input samples of a whole stream
+	 * @return the number of output samples the stream converts to, flush
+	 *         included
+	 */
+	public int length(int count) {
+		return (int) Math.ceilDiv((long) count * outputRate, inputRate);
+	}
+
+	/**
+	 * Forgets the input, to start converting another stream.
+	 */
+	public void reset() {
+		Arrays.fill(history, 0f);
+		position = 0;
+		phase = interpolation;
+		warmup = taps / 2;
+	}
+
+	/**
+	 * Converts a block of input.
+	 *
+	 * @param in        input samples
+	 * @param inOffset  first sample of in
+	 * @param count     number of input samples, all consumed
+	 * @param out       output samples, with room for {@link #maxOutput(int)
+	 *                  maxOutput(count)} samples
+	 * @param outOffset first sample of out to write
+	 * @return the number of output samples written
+	 */
+	public int process(float[] in, int inOffset, int count, float[] out, int outOffset) {
+		int i = inOffset;
+		int end = inOffset + count;
+		for (; warmup > 0 && i < end; warmup--) {
+			push(in[i++]);
+		}
+		int n = 0;
+		while (true) {
+			while (phase >= interpolation) {
+				if (i == end) {
+					return n;
+				}
+				push(in[i++]);
+				phase -= interpolation;
+			}
+			out[outOffset + n++] = dot(phase);
+			phase += decimation;
+		}
+	}
+
+	/**
+	 * Ends the stream, writing the samples still held back.
+	 *
+	 * @param out       output samples, with room for {@link #maxOutput(int)
+	 *                  maxOutput(getDelay())} samples
+	 * @param outOffset first sample of out to write
+	 * @return the number of output samples written
+	 */
+	public int flush(float[] out, int outOffset) {
+		int n = process(zeros, 0, zeros.length, out, outOffset);
+		reset();
+		return n;
+	}
+
+	private void push(float sample) {
+		history[position] = sample;
+		history[position + taps] = sample;
+		position = position + 1 == taps ? 0 : position + 1;
+	}
+
+	private float dot(int phase) {
+		var h = table;
+		var x = history;
+		int base = phase * taps;
+		int from = position;
+		// four independent sums, as taps is even and usually a multiple of four
+		float s0 = 0;
+		float s1 = 0;
+		float s2 = 0;
+		float s3 = 0;
+		int k = 0;
+		for (; k + 3 < taps; k += 4) {
+			s0 += h[base + k] * x[from + k];
+			s1 += h[base + k + 1] * x[from + k + 1];
+			s2 += h[base + k + 2] * x[from + k + 2];
+			s3 += h[base + k + 3] * x[from + k + 3];
+		}
+		for (; k < taps; k++) {
+			s0 += h[base + k] * x[from + k];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+}
@@ -0,0 +1,85 @@
+package com.github.tasogare.sfxr.engine;
+
+/**
+ * Plain loops, the reference of {@link VectorKernels}.
+ *
+ * @author tasogare
+ */
+final class ScalarKernels implements PcmKernels.Kernels {
+
+	@Override
+	public void toFloat(byte[] in, int inOffset, float[] out, int outOffset, int count) {
+		for (int i = 0; i < count; i++) {
+			out[outOffset + i] = in[inOffset + i] / 127f;
+		}
+	}
+
+	@Override
+	public void toDouble(byte[] in, int inOffset, double[] out, int outOffset, int count) {
+		for (int i = 0; i < count; i++) {
+			out[outOffset + i] = in[inOffset + i] / 127.;
+		}
+	}
+
+	@Override
+	public void toPcm(float[] in, int inOffset, byte[] out, int outOffset, int count) {
+		for (int i = 0; i < count; i++) {
+			out[outOffset + i] = toPcm(in[inOffset + i]);
+		}
+	}
+
+	@Override
+	public void toPcm(double[] in, int inOffset, byte[] out, int outOffset, int count) {
+		for (int i = 0; i < count; i++) {
+			out[outOffset + i] = toPcm(in[inOffset + i]);
+		}
+	}
+
+	static byte toPcm(float v) {
+		return (byte) (Math.min(Math.max(v, -1f), 1f) * 127f);
+	}
+
+	static byte toPcm(double v) {
+		return (byte) (Math.min(Math.max(v, -1.0), 1.0) * 127.0);
+	}
+
+	@Override
+	public void gain(float[] buffer, int offset, int count, float gain) {
+		for (int i = offset; i < offset + count; i++) {
+			buffer[i] *= gain;
+		}
+	}
+
+	@Override
+	public void clamp(float[] buffer, int offset, int count, float min, float max) {
+		for (int i = offset; i < offset + count; i++) {
+			buffer[i] = Math.min(Math.max(buffer[i], min), max);
+		}
+	}
+
+	@Override
+	public void mix(float[] in, int inOffset, float[] out, int outOffset, int count, float gain) {
+		for (int i = 0; i < count; i++) {
+			out[outOffset + i] += gain * in[inOffset + i];
+		}
+	}
+
+	@Override
+	public int maxDifference(byte[] a, int aOffset, byte[] b, int bOffset, int count) {
+		int max = 0;
+		for (int i = 0; i < count; i++) {
+			max = Math.max(max, Math.abs(a[aOffset + i] - b[bOffset + i]));
+		}
+		return max;
+	}
+
+	@Override
+	public long squaredDifference(byte[] a, int aOffset, byte[] b, int bOffset, int count) {
+		long sum = 0;
+		for (int i = 0; i < count; i++) {
+			int d = a[aOffset + i] - b[bOffset + i];
+			sum += d * d;
+		}
+		return sum;
+	}
+}
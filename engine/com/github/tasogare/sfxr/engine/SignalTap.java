@@ -0,0 +1,156 @@
+package com.github.tasogare.sfxr.engine;
+
+import java.util.EnumMap;
+import java.util.Set;
+
+/**
+ * Copies the signal between the stages of a {@link Synth} into ring buffers,
+ * for visualizers and tests.
+ *
+ * The signal stages are recorded at the supersampling rate, eight values per
+ * output sample, and the envelope once per output sample. Buffers are allocated
+ * up front, so recording never allocates. A synth without a tap only pays a
+ * null check per supersample.
+ *
+ * One synth writes to a tap. Other threads may read it at any time, but then
+ * the copy may mix values of successive writes; read it after rendering for
+ * exact values.
+ *
+ * @author tasogare
+ */
+public final class SignalTap {
+	/**
+	 * Points of the synthesis that can be recorded.
+	 */
+	public enum Stage {
+		/**
+		 * Base waveform, before any filter.
+		 */
+		OSCILLATOR,
+		/**
+		 * Output of the low-pass filter.
+		 */
+		LOWPASS,
+		/**
+		 * Output of the high-pass filter.
+		 */
+		HIGHPASS,
+		/**
+		 * Output of the phaser, before the envelope.
+		 */
+		PHASER,
+		/**
+		 * Volume envelope, once per output sample.
+		 */
+		ENVELOPE
+	}
+
+	private static final class Ring {
+		final float[] values;
+
+		volatile long written;
+
+		Ring(int capacity) {
+			values = new float[capacity];
+		}
+
+		void add(double value) {
+			long w = written;
+			values[(int) (w % values.length)] = (float) value;
+			written = w + 1;
+		}
+	}
+
+	private final EnumMap<Stage, Ring> rings = new EnumMap<>(Stage.class);
+
+	private final Ring oscillator;
+
+	private final Ring lowpass;
+
+	private final Ring highpass;
+
+	private final Ring phaser;
+
+	private final Ring envelope;
+
+	/**
+	 * @param capacity number of values kept per stage
+	 * @param stages   stages to record
+	 */
+	public SignalTap(int capacity, Set<Stage> stages) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity: " + capacity);
+		}
+		for (var stage : stages) {
+			rings.put(stage, new Ring(capacity));
+		}
+		oscillator = rings.get(Stage.OSCILLATOR);
+		lowpass = rings.get(Stage.LOWPASS);
+		highpass = rings.get(Stage.HIGHPASS);
+		phaser = rings.get(Stage.PHASER);
+		envelope = rings.get(Stage.ENVELOPE);
+	}
+
+	void supersample(double oscillator, double lowpass, double highpass, double phaser) {
+		if (this.oscillator != null) {
+			this.oscillator.add(oscillator);
+		}
+		if (this.lowpass != null) {
+			this.lowpass.add(lowpass);
+		}
+		if (this.highpass != null) {
+			this.highpass.add(highpass);
+		}
+		if (this.phaser != null) {
+			this.phaser.add(phaser);
+		}
+	}
+
+	void envelope(double volume) {
+		if (envelope != null) {
+			envelope.add(volume);
+		}
+	}
+
+	/**
+	 * @return the stages recorded
+	 */
+	public Set<Stage> getStages() {
+		return rings.keySet();
+	}
+
+	/**
+	 * @param stage stage recorded
+	 * @return number of values recorded since the tap was created
+	 */
+	public long getWritten(Stage stage) {
+		return ring(stage).written;
+	}
+
+	/**
+	 * Copies the latest values of a stage, oldest first.
+	 *
+	 * @param stage stage recorded
+	 * @param out   destination
+	 * @return number of values copied, at most the capacity and the length of out
+	 */
+	public int copyLatest(Stage stage, float[] out) {
+		var ring = ring(stage);
+		var values = ring.values;
+		long end = ring.written;
+		int n = (int) Math.min(Math.min(out.length, values.length), end);
+		long first = end - n;
+		for (int i = 0; i < n; i++) {
+			out[i] = values[(int) ((first + i) % values.length)];
+		}
+		return n;
+	}
+
+	private Ring ring(Stage stage) {
+		var ring = rings.get(stage);
+		if (ring == null) {
+			throw new IllegalArgumentException("stage not recorded: " + stage);
+		}
+		return ring;
+	}
+}
@@ -24,9 +24,7 @@
 package com.github.tasogare.sfxr.engine;
 
 import java.util.random.RandomGenerator;
-
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioFormat.Encoding;
+import java.util.random.RandomGeneratorFactory;
 
 /**
  * @author Eiyeron, tasogare
@@ -34,6 +32,9 @@ import javax.sound.sampled.AudioFormat.Encoding;
  */
 public class Sound {
 
+	private static final RandomGeneratorFactory<RandomGenerator> RANDOM_GENERATOR_FACTORY = RandomGeneratorFactory
+			.of(Synth.RANDOM_ALGORITHM);
+
 	/**
 	 * Generates A sound directly from a chosen FX
 	 * 
@@ -46,6 +47,20 @@ public class Sound {
 		return synth.createSound(rng);
 	}
 
+	/**
+	 * Generates a sound from a preset with a generator seeded by {@code seed}.
+	 * The same preset and seed always give the same PCM.
+	 * 
+	 * @param preset preset to render
+	 * @param seed   random seed
+	 * @return The sound generated, ready-to-use
+	 */
+	public static Sound fromPreset(Preset preset, long seed) {
+		var rng = RANDOM_GENERATOR_FACTORY.create(seed);
+		var synth = new Synth(preset, rng);
+		return synth.createSound(rng);
+	}
+
 	private byte[] pcm;
 
 	private double[] pcmDouble;
@@ -98,9 +113,7 @@ public class Sound {
 
 	private void convertByteArrayToDouble() {
 		this.pcmDouble = new double[pcm.length];
-		for (int i = 0; i < pcm.length; i++) {
-			pcmDouble[i] = (int) pcm[i] / 127.;
-		}
+		PcmKernels.toDouble(pcm, 0, pcmDouble, 0, pcm.length);
 	}
 
 	private void convertDoubleArrayToByte() {
@@ -110,11 +123,6 @@ public class Sound {
 		}
 	}
 
-	public AudioFormat createAudioFormat(int sampleSizeInBits, int channels, int frameSize, boolean bigEndian) {
-		return new AudioFormat(Encoding.PCM_SIGNED, getSampleRate(), sampleSizeInBits, channels, frameSize,
-				getSampleRate(), bigEndian);
-	}
-
 	/**
 	 * @return Sound's byte array
 	 */
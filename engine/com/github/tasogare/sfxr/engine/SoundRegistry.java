@@ -0,0 +1,77 @@
+package com.github.tasogare.sfxr.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Named sounds shared between a player and whatever keeps them up to date.
+ *
+ * The sounds live in an immutable map swapped atomically on every change, so
+ * lookups never lock and never see a half-updated registry. A voice keeps the
+ * sound it was started with, so replacing a sound only affects later lookups.
+ *
+ * @author tasogare
+ */
+public final class SoundRegistry {
+	private final AtomicReference<Map<String, Sound>> sounds = new AtomicReference<>(Map.of());
+
+	/**
+	 * Creates an empty registry.
+	 */
+	public SoundRegistry() {
+	}
+
+	/**
+	 * @param name name of the sound
+	 * @return the current sound of that name, or null
+	 */
+	public Sound get(String name) {
+		return sounds.get().get(name);
+	}
+
+	/**
+	 * @return the names of the current sounds
+	 */
+	public Set<String> names() {
+		return sounds.get().keySet();
+	}
+
+	/**
+	 * @return the current sounds, unaffected by later changes
+	 */
+	public Map<String, Sound> snapshot() {
+		return sounds.get();
+	}
+
+	/**
+	 * @param name  name of the sound
+	 * @param sound sound replacing the previous one of that name
+	 * @return the previous sound, or null
+	 */
+	public Sound put(String name, Sound sound) {
+		var previous = sounds.getAndUpdate(current -> {
+			var next = new HashMap<>(current);
+			next.put(name, sound);
+			return Map.copyOf(next);
+		});
+		return previous.get(name);
+	}
+
+	/**
+	 * @param name name of the sound
+	 * @return the removed sound, or null
+	 */
+	public Sound remove(String name) {
+		var previous = sounds.getAndUpdate(current -> {
+			if (!current.containsKey(name)) {
+				return current;
+			}
+			var next = new HashMap<>(current);
+			next.remove(name);
+			return Map.copyOf(next);
+		});
+		return previous.get(name);
+	}
+}
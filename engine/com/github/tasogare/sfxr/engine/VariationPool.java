@@ -0,0 +1,179 @@
+package com.github.tasogare.sfxr.engine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.random.RandomGenerator.SplittableGenerator;
+
+import com.github.tasogare.sfxr.engine.BatchRenderer.PresetRequest;
+import com.github.tasogare.sfxr.engine.BatchRenderer.Result;
+
+/**
+ * Variants of a sound rendered ahead of time, so that triggering it repeatedly
+ * doesn't play the very same samples every time.
+ *
+ * The first variant is the base preset and the others are
+ * {@link Preset#mutate(java.util.random.RandomGenerator) mutations} of it, all
+ * rendered in parallel at load time. {@link #next()} neither allocates nor
+ * locks, so it can be called from a game loop or an audio thread.
+ *
+ * @author tasogare
+ */
+public final class VariationPool {
+
+	/**
+	 * How {@link #next()} picks a variant.
+	 */
+	public enum Selection {
+		/**
+		 * Every variant in turn.
+		 */
+		ROUND_ROBIN,
+		/**
+		 * A random variant other than the previous one.
+		 */
+		NO_REPEAT
+	}
+
+	/**
+	 * @param renderer  renderer of the variants
+	 * @param base      preset of the first variant
+	 * @param variants  number of variants
+	 * @param selection how variants are picked
+	 * @param rng       generator of the mutations and renders
+	 * @return the pool
+	 */
+	public static VariationPool render(BatchRenderer renderer, PresetValue base, int variants, Selection selection,
+			SplittableGenerator rng) {
+		checkVariants(variants);
+		var requests = new ArrayList<PresetRequest>(variants);
+		addVariants(requests, base, variants, rng);
+		return new VariationPool(sounds(renderer.renderAll(requests, rng)), selection);
+	}
+
+	/**
+	 * Renders the pools of several FX in a single batch.
+	 *
+	 * @param renderer  renderer of the variants
+	 * @param fxs       FX to render
+	 * @param variants  number of variants per FX
+	 * @param selection how variants are picked
+	 * @param rng       generator of the base presets, mutations and renders
+	 * @return the pool of every FX
+	 */
+	public static Map<FX, VariationPool> render(BatchRenderer renderer, Collection<FX> fxs, int variants,
+			Selection selection, SplittableGenerator rng) {
+		checkVariants(variants);
+		var order = List.copyOf(fxs);
+		var requests = new ArrayList<PresetRequest>(order.size() * variants);
+		for (var fx : order) {
+			addVariants(requests, Preset.fromFx(rng, fx).toValue(), variants, rng);
+		}
+		var results = renderer.renderAll(requests, rng);
+		var pools = new EnumMap<FX, VariationPool>(FX.class);
+		for (int i = 0; i < order.size(); i++) {
+			var sounds = sounds(results.subList(i * variants, (i + 1) * variants));
+			pools.put(order.get(i), new VariationPool(sounds, selection));
+		}
+		return pools;
+	}
+
+	private static void checkVariants(int variants) {
+		if (variants < 1) {
+			throw new IllegalArgumentException("variants: " + variants);
+		}
+	}
+
+	private static void addVariants(List<PresetRequest> requests, PresetValue base, int variants,
+			SplittableGenerator rng) {
+		requests.add(new PresetRequest(base));
+		for (int i = 1; i < variants; i++) {
+			var preset = base.toPreset();
+			preset.mutate(rng);
+			requests.add(new PresetRequest(preset.toValue()));
+		}
+	}
+
+	private static Sound[] sounds(List<Result> results) {
+		return results.stream().map(Result::sound).toArray(Sound[]::new);
+	}
+
+	private final Sound[] sounds;
+
+	private final Selection selection;
+
+	/**
+	 * Index of the previously picked variant, or the turn for round robin.
+	 */
+	private final AtomicInteger last = new AtomicInteger(-1);
+
+	/**
+	 * @param sounds    variants, at least one
+	 * @param selection how variants are picked
+	 */
+	public VariationPool(Sound[] sounds, Selection selection) {
+		if (sounds.length == 0) {
+			throw new IllegalArgumentException("no variant");
+		}
+		this.sounds = sounds.clone();
+		this.selection = selection;
+	}
+
+	/**
+	 * @return a variant to play
+	 */
+	public Sound next() {
+		return sounds[nextIndex()];
+	}
+
+	int nextIndex() {
+		int n = sounds.length;
+		return switch (selection) {
+		case ROUND_ROBIN -> Math.floorMod(last.incrementAndGet(), n);
+		case NO_REPEAT -> {
+			if (n == 1) {
+				yield 0;
+			}
+			while (true) {
+				int previous = last.get();
+				int index;
+				if (previous < 0) {
+					index = ThreadLocalRandom.current().nextInt(n);
+				} else {
+					// any index but the previous one
+					index = ThreadLocalRandom.current().nextInt(n - 1);
+					if (index >= previous) {
+						index++;
+					}
+				}
+				if (last.compareAndSet(previous, index)) {
+					yield index;
+				}
+			}
+		}
+		};
+	}
+
+	/**
+	 * @param index index of the variant
+	 * @return the variant
+	 */
+	public Sound get(int index) {
+		return sounds[index];
+	}
+
+	/**
+	 * @return number of variants
+	 */
+	public int size() {
+		return sounds.length;
+	}
+
+	public Selection getSelection() {
+		return selection;
+	}
+}
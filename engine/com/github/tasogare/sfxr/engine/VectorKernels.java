@@ -0,0 +1,184 @@
+package com.github.tasogare.sfxr.engine;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API kernels, only loaded when {@code jdk.incubator.vector} is present.
+ *
+ * Lanes go through the same operations as in {@link ScalarKernels}, in the same
+ * order, so results are bit-identical. Each block of bytes has as many lanes as
+ * a float vector; 256-bit vectors are used at least, so that the byte vectors
+ * are 64 bits wide.
+ *
+ * @author tasogare
+ */
+final class VectorKernels implements PcmKernels.Kernels {
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED.length() >= 8
+			? FloatVector.SPECIES_PREFERRED
+			: FloatVector.SPECIES_256;
+
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED.withShape(FLOATS.vectorShape());
+
+	private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED
+			.withShape(FLOATS.vectorShape());
+
+	private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED
+			.withShape(VectorShape.forBitSize(FLOATS.length() * Byte.SIZE));
+
+	private static final int LANES = FLOATS.length();
+
+	private static final int HALF = DOUBLES.length();
+
+	/**
+	 * Vectors summed in ints before they could overflow: a squared difference
+	 * is at most 255².
+	 */
+	private static final int SQUARES_PER_FLUSH = Integer.MAX_VALUE / (255 * 255);
+
+	@Override
+	public void toFloat(byte[] in, int inOffset, float[] out, int outOffset, int count) {
+		int bound = FLOATS.loopBound(count);
+		int i = 0;
+		for (; i < bound; i += LANES) {
+			var bytes = ByteVector.fromArray(BYTES, in, inOffset + i);
+			var floats = (FloatVector) bytes.convertShape(VectorOperators.B2F, FLOATS, 0);
+			floats.div(127f).intoArray(out, outOffset + i);
+		}
+		for (; i < count; i++) {
+			out[outOffset + i] = in[inOffset + i] / 127f;
+		}
+	}
+
+	@Override
+	public void toDouble(byte[] in, int inOffset, double[] out, int outOffset, int count) {
+		int bound = FLOATS.loopBound(count);
+		int i = 0;
+		for (; i < bound; i += LANES) {
+			var bytes = ByteVector.fromArray(BYTES, in, inOffset + i);
+			var low = (DoubleVector) bytes.convertShape(VectorOperators.B2D, DOUBLES, 0);
+			var high = (DoubleVector) bytes.convertShape(VectorOperators.B2D, DOUBLES, 1);
+			low.div(127.).intoArray(out, outOffset + i);
+			high.div(127.).intoArray(out, outOffset + i + HALF);
+		}
+		for (; i < count; i++) {
+			out[outOffset + i] = in[inOffset + i] / 127.;
+		}
+	}
+
+	@Override
+	public void toPcm(float[] in, int inOffset, byte[] out, int outOffset, int count) {
+		int bound = FLOATS.loopBound(count);
+		int i = 0;
+		for (; i < bound; i += LANES) {
+			var scaled = FloatVector.fromArray(FLOATS, in, inOffset + i).max(-1f).min(1f).mul(127f);
+			var ints = (IntVector) scaled.convertShape(VectorOperators.F2I, INTS, 0);
+			((ByteVector) ints.convertShape(VectorOperators.I2B, BYTES, 0)).intoArray(out, outOffset + i);
+		}
+		for (; i < count; i++) {
+			out[outOffset + i] = ScalarKernels.toPcm(in[inOffset + i]);
+		}
+	}
+
+	@Override
+	public void toPcm(double[] in, int inOffset, byte[] out, int outOffset, int count) {
+		int bound = FLOATS.loopBound(count);
+		int i = 0;
+		for (; i < bound; i += LANES) {
+			var low = DoubleVector.fromArray(DOUBLES, in, inOffset + i).max(-1.0).min(1.0).mul(127.0);
+			var high = DoubleVector.fromArray(DOUBLES, in, inOffset + i + HALF).max(-1.0).min(1.0).mul(127.0);
+			// each half fills its own lanes and zeroes the others
+			var ints = ((IntVector) low.convertShape(VectorOperators.D2I, INTS, 0))
+					.or((IntVector) high.convertShape(VectorOperators.D2I, INTS, -1));
+			((ByteVector) ints.convertShape(VectorOperators.I2B, BYTES, 0)).intoArray(out, outOffset + i);
+		}
+		for (; i < count; i++) {
+			out[outOffset + i] = ScalarKernels.toPcm(in[inOffset + i]);
+		}
+	}
+
+	@Override
+	public void gain(float[] buffer, int offset, int count, float gain) {
+		int bound = FLOATS.loopBound(count);
+		int i = 0;
+		for (; i < bound; i += LANES) {
+			FloatVector.fromArray(FLOATS, buffer, offset + i).mul(gain).intoArray(buffer, offset + i);
+		}
+		for (; i < count; i++) {
+			buffer[offset + i] *= gain;
+		}
+	}
+
+	@Override
+	public void clamp(float[] buffer, int offset, int count, float min, float max) {
+		int bound = FLOATS.loopBound(count);
+		int i = 0;
+		for (; i < bound; i += LANES) {
+			FloatVector.fromArray(FLOATS, buffer, offset + i).max(min).min(max).intoArray(buffer, offset + i);
+		}
+		for (; i < count; i++) {
+			buffer[offset + i] = Math.min(Math.max(buffer[offset + i], min), max);
+		}
+	}
+
+	@Override
+	public void mix(float[] in, int inOffset, float[] out, int outOffset, int count, float gain) {
+		int bound = FLOATS.loopBound(count);
+		int i = 0;
+		for (; i < bound; i += LANES) {
+			var sum = FloatVector.fromArray(FLOATS, out, outOffset + i)
+					.add(FloatVector.fromArray(FLOATS, in, inOffset + i).mul(gain));
+			sum.intoArray(out, outOffset + i);
+		}
+		for (; i < count; i++) {
+			out[outOffset + i] += gain * in[inOffset + i];
+		}
+	}
+
+	@Override
+	public int maxDifference(byte[] a, int aOffset, byte[] b, int bOffset, int count) {
+		int bound = FLOATS.loopBound(count);
+		var max = IntVector.zero(INTS);
+		int i = 0;
+		for (; i < bound; i += LANES) {
+			max = max.max(difference(a, aOffset + i, b, bOffset + i).abs());
+		}
+		int result = max.reduceLanes(VectorOperators.MAX);
+		for (; i < count; i++) {
+			result = Math.max(result, Math.abs(a[aOffset + i] - b[bOffset + i]));
+		}
+		return result;
+	}
+
+	@Override
+	public long squaredDifference(byte[] a, int aOffset, byte[] b, int bOffset, int count) {
+		int bound = FLOATS.loopBound(count);
+		long result = 0;
+		int i = 0;
+		while (i < bound) {
+			int end = i + Math.min(bound - i, SQUARES_PER_FLUSH * LANES);
+			var sum = IntVector.zero(INTS);
+			for (; i < end; i += LANES) {
+				var d = difference(a, aOffset + i, b, bOffset + i);
+				sum = sum.add(d.mul(d));
+			}
+			result += sum.reduceLanesToLong(VectorOperators.ADD);
+		}
+		for (; i < count; i++) {
+			int d = a[aOffset + i] - b[bOffset + i];
+			result += d * d;
+		}
+		return result;
+	}
+
+	private static IntVector difference(byte[] a, int aOffset, byte[] b, int bOffset) {
+		var x = (IntVector) ByteVector.fromArray(BYTES, a, aOffset).convertShape(VectorOperators.B2I, INTS, 0);
+		var y = (IntVector) ByteVector.fromArray(BYTES, b, bOffset).convertShape(VectorOperators.B2I, INTS, 0);
+		return x.sub(y);
+	}
+}
@@ -0,0 +1,140 @@
+package com.github.tasogare.sfxr.engine;
+
+/**
+ * A rendered sound being played at some pitch.
+ *
+ * The sound is read at a fractional position advanced by a fixed-point step,
+ * so a shifted copy costs a few multiply-adds per sample instead of a new
+ * synthesis. A voice only holds a reference to its sound, which must not be
+ * modified while it plays.
+ *
+ * @author tasogare
+ */
+public final class Voice {
+	private static final double ONE = 0x1p32;
+
+	private static final float FRACTION = 0x1p-32f;
+
+	/**
+	 * @param semitones shift in semitones, negative to lower the pitch
+	 * @return the playback rate ratio of that shift
+	 */
+	public static double ratio(double semitones) {
+		return Math.pow(2, semitones / 12);
+	}
+
+	private final double[] samples;
+
+	private final long step;
+
+	private final float gain;
+
+	private final Interpolation interpolation;
+
+	/**
+	 * Position in samples of the sound, 32.32 fixed point.
+	 */
+	private long position;
+
+	private volatile boolean stopped;
+
+	private boolean started;
+
+	/**
+	 * @param sound         sound to play
+	 * @param outputRate    sample rate of the output
+	 * @param ratio         playback rate ratio, 2 for an octave up
+	 * @param gain          gain applied to the samples
+	 * @param interpolation how to read between samples
+	 */
+	public Voice(Sound sound, int outputRate, double ratio, float gain, Interpolation interpolation) {
+		if (!(ratio > 0)) {
+			throw new IllegalArgumentException("ratio: " + ratio);
+		}
+		this.samples = sound.getPcmDouble();
+		this.step = Math.round(ratio * sound.getSampleRate() / outputRate * ONE);
+		this.gain = gain;
+		this.interpolation = interpolation;
+	}
+
+	/**
+	 * @return the number of output samples the whole sound takes
+	 */
+	public int getLength() {
+		return (int) Math.min(Integer.MAX_VALUE, Math.ceilDiv((long) samples.length << 32, step));
+	}
+
+	/**
+	 * Ends the voice at the next mix.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Only meaningful on the thread mixing the voice.
+	 *
+	 * @return whether the voice was mixed at least once
+	 */
+	public boolean isStarted() {
+		return started;
+	}
+
+	/**
+	 * @return whether the voice has nothing left to play
+	 */
+	public boolean isDone() {
+		return stopped || (position >>> 32) >= samples.length;
+	}
+
+	/**
+	 * Adds the next samples of the voice to out.
+	 *
+	 * @param out    mix buffer
+	 * @param offset first sample of out to add to
+	 * @param count  number of samples to add
+	 * @return the number of samples added, less than count once the sound ends
+	 */
+	public int mix(float[] out, int offset, int count) {
+		if (stopped) {
+			return 0;
+		}
+		started = true;
+		var s = samples;
+		long p = position;
+		int n = 0;
+		switch (interpolation) {
+		case LINEAR -> {
+			for (; n < count; n++, p += step) {
+				int i = (int) (p >>> 32);
+				if (i >= s.length) {
+					break;
+				}
+				float t = (p & 0xffffffffL) * FRACTION;
+				float x0 = (float) s[i];
+				float x1 = i + 1 < s.length ? (float) s[i + 1] : 0;
+				out[offset + n] += gain * (x0 + (x1 - x0) * t);
+			}
+		}
+		case CUBIC -> {
+			for (; n < count; n++, p += step) {
+				int i = (int) (p >>> 32);
+				if (i >= s.length) {
+					break;
+				}
+				float t = (p & 0xffffffffL) * FRACTION;
+				float xm = i > 0 ? (float) s[i - 1] : 0;
+				float x0 = (float) s[i];
+				float x1 = i + 1 < s.length ? (float) s[i + 1] : 0;
+				float x2 = i + 2 < s.length ? (float) s[i + 2] : 0;
+				float c1 = 0.5f * (x1 - xm);
+				float c2 = xm - 2.5f * x0 + 2 * x1 - 0.5f * x2;
+				float c3 = 0.5f * (x2 - xm) + 1.5f * (x0 - x1);
+				out[offset + n] += gain * (((c3 * t + c2) * t + c1) * t + x0);
+			}
+		}
+		}
+		position = p;
+		return n;
+	}
+}
@@ -0,0 +1,24 @@
+package com.github.tasogare.sfxr.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning the writing of a wave file by
+ * {@link WaveWriter}.
+ *
+ * @author tasogare
+ */
+@Name("tasogare.sfxr.WaveWrite")
+@Label("Wave Write")
+@Category({ "SFXR", "Engine" })
+@Description("Writing of a sound as a wave file")
+final class WaveWriteEvent extends Event {
+	@Label("Bytes")
+	@DataAmount
+	long bytes;
+}
@@ -0,0 +1,75 @@
+package com.github.tasogare.sfxr.engine;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes sounds as 8-bit mono wave files without {@code javax.sound}.
+ *
+ * @author tasogare
+ */
+public final class WaveWriter {
+	/**
+	 * Size of the RIFF header preceding the samples.
+	 */
+	public static final int HEADER_SIZE = 44;
+
+	/**
+	 * @param sampleRate sample rate of the data
+	 * @param length     number of samples, or -1 when unknown
+	 * @return the RIFF header of an 8-bit mono wave file
+	 */
+	public static byte[] header(int sampleRate, int length) {
+		int dataSize = length < 0 ? -1 : length;
+		int riffSize = length < 0 ? -1 : HEADER_SIZE - 8 + length;
+		var header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.put("RIFF".getBytes(US_ASCII)).putInt(riffSize);
+		header.put("WAVE".getBytes(US_ASCII));
+		header.put("fmt ".getBytes(US_ASCII)).putInt(16);
+		header.putShort((short) 1).putShort((short) 1).putInt(sampleRate).putInt(sampleRate);
+		header.putShort((short) 1).putShort((short) 8);
+		header.put("data".getBytes(US_ASCII)).putInt(dataSize);
+		return header.array();
+	}
+
+	/**
+	 * Converts signed samples to the unsigned samples of an 8-bit wave file, in
+	 * place.
+	 *
+	 * @param pcm    samples
+	 * @param offset first sample
+	 * @param length number of samples
+	 */
+	public static void toUnsigned(byte[] pcm, int offset, int length) {
+		for (int i = offset; i < offset + length; i++) {
+			pcm[i] ^= (byte) 0x80;
+		}
+	}
+
+	/**
+	 * @param sound sound to write
+	 * @param os    destination, left open
+	 * @throws IOException if the stream can't be written
+	 */
+	public static void write(Sound sound, OutputStream os) throws IOException {
+		var event = new WaveWriteEvent();
+		event.begin();
+		var pcm = sound.getPcm();
+		os.write(header(sound.getSampleRate(), pcm.length));
+		var data = pcm.clone();
+		toUnsigned(data, 0, data.length);
+		os.write(data);
+		RenderMetrics.written(HEADER_SIZE + data.length);
+		if (event.shouldCommit()) {
+			event.bytes = HEADER_SIZE + data.length;
+			event.commit();
+		}
+	}
+
+	private WaveWriter() {
+	}
+}
@@ -0,0 +1,11 @@
+
+/**
+ * Headless SFXR engine, without any desktop dependency.
+ */
+module tasogare.sfxr.engine {
+	exports com.github.tasogare.sfxr.engine;
+
+	requires java.xml;
+	requires jdk.jfr;
+	requires static jdk.incubator.vector;
+}
@@ -0,0 +1,101 @@
+package com.github.tasogare.sfxr.server;
+
+import com.github.tasogare.sfxr.engine.Preset;
+import com.github.tasogare.sfxr.engine.WaveForm;
+
+/**
+ * Reads a preset from a flat JSON object whose keys are the preset properties,
+ * such as <code>{"waveType": "SINE", "attackTime": 0.1}</code>. Missing
+ * properties keep their defaults.
+ *
+ * @author tasogare
+ */
+final class PresetJson {
+	private final String text;
+
+	private int index;
+
+	static Preset read(String text) {
+		return new PresetJson(text).readObject();
+	}
+
+	private PresetJson(String text) {
+		this.text = text;
+	}
+
+	private Preset readObject() {
+		var preset = new Preset();
+		expect('{');
+		if (peek() == '}') {
+			index++;
+		} else {
+			do {
+				var name = readString();
+				expect(':');
+				if (name.equals("waveType")) {
+					preset.setWaveType(WaveForm.valueOf(readString()));
+				} else {
+					preset.setParameter(name, readNumber());
+				}
+			} while (accept(','));
+			expect('}');
+		}
+		if (peek() != 0) {
+			throw error("trailing characters");
+		}
+		return preset;
+	}
+
+	private String readString() {
+		expect('"');
+		int start = index;
+		while (index < text.length() && text.charAt(index) != '"') {
+			if (text.charAt(index) == '\\') {
+				throw error("escapes are not supported");
+			}
+			index++;
+		}
+		if (index == text.length()) {
+			throw error("unterminated string");
+		}
+		return text.substring(start, index++);
+	}
+
+	private double readNumber() {
+		peek();
+		int start = index;
+		while (index < text.length() && "+-.0123456789eE".indexOf(text.charAt(index)) >= 0) {
+			index++;
+		}
+		try {
+			return Double.parseDouble(text.substring(start, index));
+		} catch (NumberFormatException e) {
+			throw error("number expected");
+		}
+	}
+
+	private boolean accept(char c) {
+		if (peek() == c) {
+			index++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(char c) {
+		if (!accept(c)) {
+			throw error("'" + c + "' expected");
+		}
+	}
+
+	private char peek() {
+		while (index < text.length() && Character.isWhitespace(text.charAt(index))) {
+			index++;
+		}
+		return index < text.length() ? text.charAt(index) : 0;
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at " + index);
+	}
+}
@@ -0,0 +1,463 @@
+package com.github.tasogare.sfxr.server;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.github.tasogare.sfxr.engine.FX;
+import com.github.tasogare.sfxr.engine.Preset;
+import com.github.tasogare.sfxr.engine.PresetValue;
+import com.github.tasogare.sfxr.engine.PresetXml;
+import com.github.tasogare.sfxr.engine.RenderCache;
+import com.github.tasogare.sfxr.engine.RenderCost;
+import com.github.tasogare.sfxr.engine.RenderMetrics;
+import com.github.tasogare.sfxr.engine.Sound;
+import com.github.tasogare.sfxr.engine.Synth;
+import com.github.tasogare.sfxr.engine.WaveForm;
+import com.github.tasogare.sfxr.engine.WaveWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Renders sounds for local build tools and editors over HTTP.
+ *
+ * <ul>
+ * <li>{@code GET /render?fx=laser&seed=1} renders a preset generated from an
+ * FX.</li>
+ * <li>{@code POST /render?seed=1} renders the preset in the body, as JSON or
+ * sfp.</li>
+ * <li>{@code GET /stats} reports the counters.</li>
+ * </ul>
+ *
+ * Every exchange runs on its own virtual thread. Rendering is limited to one
+ * sound per processor, at most {@code queue} requests are admitted at once and
+ * the others are refused with 503. Identical concurrent requests are rendered
+ * once and the wave files are kept in a shared cache. Presets whose sound is
+ * longer than a limit are refused with 400 before rendering.
+ *
+ * @author tasogare
+ */
+public final class RenderServer {
+	private static final System.Logger logger = System.getLogger(RenderServer.class.getName());
+
+	private static final RandomGeneratorFactory<RandomGenerator> RANDOM_GENERATOR_FACTORY = RandomGeneratorFactory
+			.of(Synth.RANDOM_ALGORITHM);
+
+	private static final int MAX_BODY_SIZE = 64 * 1024;
+
+	private static final String USAGE = "usage: RenderServer [-p port] [-q queue] [-m memory-mb] [-c cache-dir]"
+			+ " [-d disk-mb] [-l seconds]";
+
+	public static void main(String... args) throws IOException {
+		int port = 8080;
+		int queue = 1024;
+		long memory = 256;
+		Path cacheDirectory = null;
+		long disk = 1024;
+		int maxSamples = RenderCost.MAX_SAMPLES;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "-p" -> port = Integer.parseInt(args[++i]);
+				case "-q" -> queue = Integer.parseInt(args[++i]);
+				case "-m" -> memory = Long.parseLong(args[++i]);
+				case "-c" -> cacheDirectory = Path.of(args[++i]);
+				case "-d" -> disk = Long.parseLong(args[++i]);
+				case "-l" -> maxSamples = (int) Math.min(Integer.MAX_VALUE,
+						Math.round(Double.parseDouble(args[++i]) * Synth.SAMPLE_RATE));
+				default -> throw new IllegalArgumentException("unknown option: " + args[i]);
+				}
+			}
+		} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+		var diskCache = cacheDirectory == null ? null : new RenderCache(cacheDirectory, disk << 20);
+		var server = new RenderServer(port, queue, memory << 20, diskCache, maxSamples);
+		server.start();
+		logger.log(System.Logger.Level.INFO, "listening on " + server.httpServer.getAddress());
+	}
+
+	private final HttpServer httpServer;
+
+	private final Semaphore admission;
+
+	private final Semaphore renderers = new Semaphore(Runtime.getRuntime().availableProcessors());
+
+	private final WaveCache cache;
+
+	private final RenderCache diskCache;
+
+	private final int maxSamples;
+
+	private final Map<Long, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+	private final long startTime = System.nanoTime();
+
+	private final LongAdder requests = new LongAdder();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder rendered = new LongAdder();
+
+	private final LongAdder rejected = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private final LongAdder latencyNanos = new LongAdder();
+
+	private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+	private final Metrics metrics = new Metrics();
+
+	private ObjectName metricsName;
+
+	/**
+	 * @param port      port to listen to on the loopback interface, 0 for any
+	 * @param queue     maximum number of requests admitted at once
+	 * @param maxBytes  size limit of the in-memory cache
+	 * @param diskCache persistent cache behind the in-memory one, or null
+	 * @throws IOException if the port can't be bound
+	 */
+	public RenderServer(int port, int queue, long maxBytes, RenderCache diskCache) throws IOException {
+		this(port, queue, maxBytes, diskCache, RenderCost.MAX_SAMPLES);
+	}
+
+	/**
+	 * @param port       port to listen to on the loopback interface, 0 for any
+	 * @param queue      maximum number of requests admitted at once
+	 * @param maxBytes   size limit of the in-memory cache
+	 * @param diskCache  persistent cache behind the in-memory one, or null
+	 * @param maxSamples length of the longest sound served, longer presets are
+	 *                   rejected before rendering
+	 * @throws IOException if the port can't be bound
+	 */
+	public RenderServer(int port, int queue, long maxBytes, RenderCache diskCache, int maxSamples)
+			throws IOException {
+		this.admission = new Semaphore(queue);
+		this.cache = new WaveCache(maxBytes);
+		this.diskCache = diskCache;
+		this.maxSamples = maxSamples;
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), queue);
+		httpServer.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		httpServer.createContext("/render", this::handleRender);
+		httpServer.createContext("/stats", this::handleStats);
+	}
+
+	/**
+	 * @return the bound address
+	 */
+	public InetSocketAddress getAddress() {
+		return httpServer.getAddress();
+	}
+
+	/**
+	 * Starts serving and registers the {@link RenderServiceMXBean}.
+	 */
+	public void start() {
+		httpServer.start();
+		try {
+			metricsName = new ObjectName("com.github.tasogare.sfxr:type=RenderServer,port=" + getAddress().getPort());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, metricsName);
+		} catch (JMException e) {
+			metricsName = null;
+			logger.log(System.Logger.Level.WARNING, "metrics not registered", e);
+		}
+	}
+
+	/**
+	 * @param delay seconds to wait for the exchanges in progress
+	 */
+	public void stop(int delay) {
+		httpServer.stop(delay);
+		if (metricsName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+			} catch (JMException e) {
+				logger.log(System.Logger.Level.WARNING, "metrics not unregistered", e);
+			}
+			metricsName = null;
+		}
+	}
+
+	/**
+	 * Reads the counters of the server and of the engine on demand.
+	 */
+	private final class Metrics implements RenderServiceMXBean {
+		private static final long MIN_RATE_NANOS = 1_000_000_000L;
+
+		private long baseNanos = startTime;
+
+		private long baseSamples = RenderMetrics.getSamplesRendered();
+
+		private long markNanos = baseNanos;
+
+		private long markSamples = baseSamples;
+
+		@Override
+		public long getRequests() {
+			return requests.sum();
+		}
+
+		@Override
+		public long getRejected() {
+			return rejected.sum();
+		}
+
+		@Override
+		public long getSoundsRendered() {
+			return RenderMetrics.getSoundsRendered();
+		}
+
+		@Override
+		public synchronized double getSamplesPerSecond() {
+			long now = System.nanoTime();
+			long samples = RenderMetrics.getSamplesRendered();
+			// the rate since the previous read, unless it is too recent
+			if (now - markNanos >= MIN_RATE_NANOS) {
+				baseNanos = markNanos;
+				baseSamples = markSamples;
+				markNanos = now;
+				markSamples = samples;
+			}
+			return (samples - baseSamples) * 1e9 / Math.max(1, now - baseNanos);
+		}
+
+		@Override
+		public Map<String, RenderTime> getRenderTimes() {
+			var times = new LinkedHashMap<String, RenderTime>();
+			for (var waveForm : WaveForm.values()) {
+				var histogram = RenderMetrics.getRenderTime(waveForm);
+				times.put(waveForm.name(),
+						new RenderTime(histogram.getCount(), histogram.getValueAtPercentile(50) / 1e6,
+								histogram.getValueAtPercentile(99) / 1e6, histogram.getValueAtPercentile(99.9) / 1e6,
+								histogram.getMax() / 1e6));
+			}
+			return times;
+		}
+
+		@Override
+		public int getQueueDepth() {
+			return renderers.getQueueLength();
+		}
+
+		@Override
+		public double getCacheHitRatio() {
+			long served = hits.sum() + rendered.sum();
+			return served == 0 ? 0.0 : (double) (hits.sum() + RenderMetrics.getCacheHits()) / served;
+		}
+
+		@Override
+		public long getBytesWritten() {
+			return RenderMetrics.getBytesWritten();
+		}
+
+		@Override
+		public int getActiveVoices() {
+			return RenderMetrics.getActiveVoices();
+		}
+	}
+
+	/**
+	 * @return the counters as text
+	 */
+	public String statistics() {
+		double uptime = (System.nanoTime() - startTime) / 1e9;
+		long count = requests.sum();
+		return String.format(Locale.ROOT, """
+				requests %d
+				requests/s %.1f
+				cache.hits %d
+				cache.entries %d
+				cache.bytes %d
+				rendered %d
+				rejected %d
+				failed %d
+				latency.mean.ms %.3f
+				latency.max.ms %.3f
+				""", count, count / uptime, hits.sum(), cache.count(), cache.size(), rendered.sum(), rejected.sum(),
+				failed.sum(), count == 0 ? 0.0 : latencyNanos.sum() / 1e6 / count, maxLatencyNanos.get() / 1e6);
+	}
+
+	private void handleStats(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			send(exchange, 200, "text/plain; charset=utf-8", statistics().getBytes(UTF_8));
+		}
+	}
+
+	private void handleRender(HttpExchange exchange) throws IOException {
+		long start = System.nanoTime();
+		requests.increment();
+		try (exchange) {
+			if (!admission.tryAcquire()) {
+				rejected.increment();
+				sendError(exchange, 503, "too many requests");
+				return;
+			}
+			try {
+				var wave = switch (exchange.getRequestMethod()) {
+				case "GET" -> renderFx(query(exchange));
+				case "POST" -> renderBody(query(exchange), exchange);
+				default -> null;
+				};
+				if (wave == null) {
+					sendError(exchange, 405, "GET or POST expected");
+				} else {
+					send(exchange, 200, "audio/wav", wave);
+				}
+			} catch (IllegalArgumentException e) {
+				sendError(exchange, 400, e.getMessage());
+			} catch (RuntimeException e) {
+				failed.increment();
+				logger.log(System.Logger.Level.ERROR, "render failed", e);
+				sendError(exchange, 500, String.valueOf(e));
+			} finally {
+				admission.release();
+			}
+		} finally {
+			long latency = System.nanoTime() - start;
+			latencyNanos.add(latency);
+			maxLatencyNanos.accumulate(latency);
+		}
+	}
+
+	private byte[] renderFx(Map<String, String> query) {
+		var name = query.get("fx");
+		if (name == null) {
+			throw new IllegalArgumentException("fx expected");
+		}
+		var fx = FX.valueOf(name.toUpperCase(Locale.ROOT));
+		long seed = seed(query);
+		var preset = Preset.fromFx(RANDOM_GENERATOR_FACTORY.create(seed), fx);
+		return render(limit(preset), seed);
+	}
+
+	private byte[] renderBody(Map<String, String> query, HttpExchange exchange) throws IOException {
+		var body = exchange.getRequestBody().readNBytes(MAX_BODY_SIZE + 1);
+		if (body.length > MAX_BODY_SIZE) {
+			throw new IllegalArgumentException("preset too large");
+		}
+		var text = new String(body, UTF_8).strip();
+		Preset preset;
+		if (text.startsWith("<")) {
+			try {
+				preset = PresetXml.read(new ByteArrayInputStream(body));
+			} catch (IOException e) {
+				throw new IllegalArgumentException(e.getMessage());
+			}
+		} else {
+			preset = PresetJson.read(text);
+		}
+		return render(limit(preset), seed(query));
+	}
+
+	/**
+	 * @return the value of preset, unless it plays longer than the limit
+	 * @throws IllegalArgumentException if preset plays longer than the limit
+	 */
+	private PresetValue limit(Preset preset) {
+		var cost = RenderCost.of(preset);
+		if (cost.exceeds(maxSamples)) {
+			throw new IllegalArgumentException(String.format("sound of %.1f s, longer than %.1f s", cost.seconds(),
+					(double) maxSamples / Synth.SAMPLE_RATE));
+		}
+		return preset.toValue();
+	}
+
+	private byte[] render(PresetValue preset, long seed) {
+		long key = RenderCache.key(preset, seed);
+		var wave = cache.get(key);
+		if (wave != null) {
+			hits.increment();
+			return wave;
+		}
+
+		var future = new CompletableFuture<byte[]>();
+		var existing = inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			hits.increment();
+			return existing.join();
+		}
+		try {
+			renderers.acquireUninterruptibly();
+			try {
+				var sound = diskCache == null ? Sound.fromPreset(preset.toPreset(), seed) : diskCache.get(preset, seed);
+				wave = toWave(sound);
+			} finally {
+				renderers.release();
+			}
+			rendered.increment();
+			cache.put(key, wave);
+			future.complete(wave);
+			return wave;
+		} catch (IOException e) {
+			future.completeExceptionally(e);
+			throw new UncheckedIOException(e);
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key);
+		}
+	}
+
+	private static byte[] toWave(Sound sound) throws IOException {
+		var os = new ByteArrayOutputStream(WaveWriter.HEADER_SIZE + sound.getPcm().length);
+		WaveWriter.write(sound, os);
+		return os.toByteArray();
+	}
+
+	private static long seed(Map<String, String> query) {
+		var seed = query.get("seed");
+		return seed == null ? 0 : Long.parseLong(seed);
+	}
+
+	private static Map<String, String> query(HttpExchange exchange) {
+		var query = new HashMap<String, String>();
+		var raw = exchange.getRequestURI().getRawQuery();
+		if (raw != null) {
+			for (var pair : raw.split("&")) {
+				int equal = pair.indexOf('=');
+				if (equal > 0) {
+					query.put(URLDecoder.decode(pair.substring(0, equal), UTF_8),
+							URLDecoder.decode(pair.substring(equal + 1), UTF_8));
+				}
+			}
+		}
+		return query;
+	}
+
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		send(exchange, status, "text/plain; charset=utf-8", (message + "\n").getBytes(UTF_8));
+	}
+
+	private static void send(HttpExchange exchange, int status, String contentType, byte[] body)
+			throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, body.length);
+		exchange.getResponseBody().write(body);
+	}
+}
@@ -0,0 +1,72 @@
+package com.github.tasogare.sfxr.server;
+
+import java.util.Map;
+
+/**
+ * Live counters of a {@link RenderServer}, registered with the platform MBean
+ * server as {@code com.github.tasogare.sfxr:type=RenderServer,port=<port>}.
+ *
+ * Attributes are computed when read, from counters the server and the engine
+ * keep anyway.
+ *
+ * @author tasogare
+ */
+public interface RenderServiceMXBean {
+
+	/**
+	 * Render times of the sounds of a wave form, in milliseconds.
+	 *
+	 * @param count number of sounds rendered
+	 * @param p50   median
+	 * @param p99   99th percentile
+	 * @param p999  99.9th percentile
+	 * @param max   slowest render
+	 */
+	record RenderTime(long count, double p50, double p99, double p999, double max) {
+	}
+
+	/**
+	 * @return number of render requests received
+	 */
+	long getRequests();
+
+	/**
+	 * @return number of requests refused because the queue was full
+	 */
+	long getRejected();
+
+	/**
+	 * @return number of sounds rendered by the engine
+	 */
+	long getSoundsRendered();
+
+	/**
+	 * @return samples rendered per second, over at least the last second
+	 */
+	double getSamplesPerSecond();
+
+	/**
+	 * @return render times by wave form name
+	 */
+	Map<String, RenderTime> getRenderTimes();
+
+	/**
+	 * @return number of requests waiting for a rendering thread
+	 */
+	int getQueueDepth();
+
+	/**
+	 * @return fraction of the sounds served from the memory or disk cache
+	 */
+	double getCacheHitRatio();
+
+	/**
+	 * @return number of bytes of wave files written by the engine
+	 */
+	long getBytesWritten();
+
+	/**
+	 * @return number of voices playing in the mixers of the process
+	 */
+	int getActiveVoices();
+}
@@ -0,0 +1,42 @@
+package com.github.tasogare.sfxr.server;
+
+import java.util.LinkedHashMap;
+
+/**
+ * In-memory least recently used cache of wave files, bounded in bytes.
+ *
+ * @author tasogare
+ */
+final class WaveCache {
+	private final LinkedHashMap<Long, byte[]> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+	private final long maxBytes;
+
+	private long size;
+
+	WaveCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	synchronized byte[] get(long key) {
+		return entries.get(key);
+	}
+
+	synchronized void put(long key, byte[] wave) {
+		var previous = entries.put(key, wave);
+		size += wave.length - (previous == null ? 0 : previous.length);
+		var iterator = entries.values().iterator();
+		while (size > maxBytes && iterator.hasNext()) {
+			size -= iterator.next().length;
+			iterator.remove();
+		}
+	}
+
+	synchronized int count() {
+		return entries.size();
+	}
+
+	synchronized long size() {
+		return size;
+	}
+}
@@ -0,0 +1,11 @@
+
+/**
+ * Local HTTP service rendering SFXR sounds.
+ */
+module tasogare.sfxr.server {
+	exports com.github.tasogare.sfxr.server;
+
+	requires java.management;
+	requires jdk.httpserver;
+	requires transitive tasogare.sfxr.engine;
+}
@@ -53,13 +53,11 @@ import java.beans.XMLDecoder;
 import java.beans.XMLEncoder;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.Serializable;
 import java.lang.System.Logger.Level;
 import java.security.SecureRandom;
@@ -67,18 +65,15 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 import java.util.random.RandomGenerator;
 import java.util.random.RandomGenerator.SplittableGenerator;
 import java.util.random.RandomGeneratorFactory;
 
-import javax.sound.sampled.AudioFileFormat;
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.LineUnavailableException;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -108,6 +103,7 @@ import javax.swing.KeyStroke;
 import javax.swing.LookAndFeel;
 import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.UIDefaults;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
@@ -121,6 +117,8 @@ import javax.swing.plaf.metal.MetalLookAndFeel;
 import javax.swing.plaf.metal.MetalTheme;
 import javax.swing.plaf.metal.OceanTheme;
 
+import com.github.tasogare.sfxr.audio.LoopPlayer;
+import com.github.tasogare.sfxr.audio.SampledSound;
 import com.github.tasogare.sfxr.engine.FX;
 import com.github.tasogare.sfxr.engine.Preset;
 import com.github.tasogare.sfxr.engine.Sound;
@@ -193,15 +191,17 @@ public class Application {
 			if (chooser.showSaveDialog(primaryFrame) == JFileChooser.APPROVE_OPTION) {
 				var file = getFile(chooser);
 				var splitedRng = rng.split();
-				executor.execute(() -> {
+				var exported = copy(preset);
+				scheduler.submit(RenderScheduler.Priority.EXPORT, () -> {
 					try (var os = new BufferedOutputStream(new FileOutputStream(file))) {
-						var syn = new Synth(preset, splitedRng);
+						var syn = new Synth(exported, splitedRng);
 						var sound = syn.createSound(splitedRng);
-						Application.this.write(sound, os);
+						SampledSound.write(sound, os);
 					} catch (IOException ex) {
 						logger.log(Level.ERROR, ex);
 					}
 					SwingUtilities.invokeLater(Application.this::enableMenuBar);
+					return null;
 				});
 			} else {
 				enableMenuBar();
@@ -245,7 +245,7 @@ public class Application {
 		@Override
 		public void actionPerformed(ActionEvent e) {
 			var worker = new FontActionWorker();
-			executor.execute(worker);
+			worker.execute();
 		}
 	}
 
@@ -682,6 +682,10 @@ public class Application {
 
 	private static final System.Logger logger = System.getLogger(Application.class.getName());
 
+	private static final int RENDER_BLOCK_SIZE = 4096;
+
+	private static final int PREVIEW_FRAME_MILLIS = 1000 / 60;
+
 	private static final Font DEFAULT_USER_SELECTED_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
 
 	public static void main(String... args) {
@@ -694,7 +698,33 @@ public class Application {
 
 	private final RandomGenerator.SplittableGenerator rng;
 
-	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+	private final RenderScheduler scheduler = new RenderScheduler();
+
+	/**
+	 * Latest render for the visualizer, only read and written on the EDT.
+	 */
+	private CompletableFuture<Sound> visualized;
+
+	/**
+	 * Whether the preset was edited since the render for the visualizer started,
+	 * only read and written on the EDT.
+	 */
+	private boolean visualizerStale;
+
+	/**
+	 * Coalesces the edits of a frame into one render of the visualizer.
+	 */
+	private final Timer previewTimer;
+
+	/**
+	 * Whether a slider is being dragged, only read and written on the EDT.
+	 */
+	private boolean previewLooping;
+
+	/**
+	 * Plays the visualized sound while a slider is dragged, or null.
+	 */
+	private LoopPlayer loopPlayer;
 
 	private Preset preset;
 
@@ -867,7 +897,7 @@ public class Application {
 					}
 				});
 
-		var randomGeneratorFactory = RandomGeneratorFactory.of("L64X1024MixRandom");
+		var randomGeneratorFactory = RandomGeneratorFactory.of(Synth.RANDOM_ALGORITHM);
 		var seed = (new SecureRandom()).generateSeed(randomGeneratorFactory.stateBits());
 		rng = (SplittableGenerator) randomGeneratorFactory.create(seed);
 
@@ -881,6 +911,10 @@ public class Application {
 
 		initContentPane();
 
+		// the sliders set by updateOptions start it for the first preview
+		previewTimer = new Timer(PREVIEW_FRAME_MILLIS, _ -> updateVisualizer());
+		previewTimer.setRepeats(false);
+
 		updateOptions();
 
 		primaryFrame.pack();
@@ -1530,6 +1564,7 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION;
 			attackValueLabel.setText(String.valueOf(value));
 			preset.setAttackTime(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1538,6 +1573,7 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION;
 			changeAmountValueLabel.setText(String.valueOf(value));
 			preset.setArpeggioDepth(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1546,6 +1582,7 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION;
 			changeSpeedValueLabel.setText(String.valueOf(value));
 			preset.setArpeggioSpeed(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1554,6 +1591,7 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION;
 			decayValueLabel.setText(String.valueOf(value));
 			preset.setDecayTime(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1562,6 +1600,7 @@ public class Application {
 			float value = model.getValue() / (float) (SLIDER_PRECISION / 2);
 			deltaSlideValueLabel.setText(String.valueOf(value));
 			preset.setPitchDeltaSlide(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1570,6 +1609,7 @@ public class Application {
 			float value = model.getValue() / (float) (SLIDER_PRECISION / 2);
 			dutySweepValueLabel.setText(String.valueOf(value));
 			preset.setSquareDutySlide(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1578,6 +1618,7 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION;
 			hpFilterCutoffValueLabel.setText(String.valueOf(value));
 			preset.setHighpassFilterCutoff(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1586,6 +1627,7 @@ public class Application {
 			float value = model.getValue() / (float) (SLIDER_PRECISION / 2);
 			hpFilterSweepValueLabel.setText(String.valueOf(value));
 			preset.setHighpassFilterCutoffSlide(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1594,6 +1636,7 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION;
 			lpFilterCutoffValueLabel.setText(String.valueOf(value));
 			preset.setLowpassFilterCutoff(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1602,6 +1645,7 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION;
 			lpFilterResonanceValueLabel.setText(String.valueOf(value));
 			preset.setLowpassFilterResonance(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1610,6 +1654,7 @@ public class Application {
 			float value = model.getValue() / (float) (SLIDER_PRECISION / 2);
 			lpFilterSweepValueLabel.setText(String.valueOf(value));
 			preset.setLowpassFilterCutoffSlide(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1618,6 +1663,7 @@ public class Application {
 			float value = model.getValue() / (float) (SLIDER_PRECISION / 2);
 			phaserOffsetValueLabel.setText(String.valueOf(value));
 			preset.setPhaserOffset(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1626,6 +1672,7 @@ public class Application {
 			float value = model.getValue() / (float) (SLIDER_PRECISION / 2);
 			phaserSweepValueLabel.setText(String.valueOf(value));
 			preset.setPhaserSlide(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1634,6 +1681,7 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION;
 			punchValueLabel.setText(String.valueOf(value));
 			preset.setSustainPunch(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1642,6 +1690,7 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION;
 			repeatSpeedValueLabel.setText(String.valueOf(value));
 			preset.setRepeatSpeed(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1650,6 +1699,7 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION / 2;
 			slideValueLabel.setText(String.valueOf(value));
 			preset.setPitchSlide(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1658,6 +1708,7 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION;
 			squareDutyValueLabel.setText(String.valueOf(value));
 			preset.setSquareDuty(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1666,6 +1717,7 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION;
 			startFrequencyValueLabel.setText(String.valueOf(value));
 			preset.setStartFrequency(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1674,6 +1726,7 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION;
 			sustainValueLabel.setText(String.valueOf(value));
 			preset.setSustainTime(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1682,6 +1735,7 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION;
 			vibratoSpeedValueLabel.setText(String.valueOf(value));
 			preset.setVibratoSpeed(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1690,6 +1744,7 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION;
 			vibratoStrengthValueLabel.setText(String.valueOf(value));
 			preset.setVibratoStrength(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
@@ -1698,12 +1753,14 @@ public class Application {
 			float value = model.getValue() / (float) SLIDER_PRECISION;
 			volumeLabel.setText(String.valueOf(value));
 			preset.setMasterVolume(value);
+			previewChanged(model.getValueIsAdjusting());
 		}
 	}
 
 	private void handleWaveFormComboBoxItemStateChanged(ItemEvent e) {
 		if (e.getStateChange() == ItemEvent.SELECTED) {
 			preset.setWaveType((WaveForm) e.getItem());
+			previewChanged(false);
 		}
 	}
 
@@ -1776,24 +1833,57 @@ public class Application {
 	 * @param preset
 	 */
 	private void play(Preset preset) {
-		var syn = new Synth(preset, rng);
-		var sound = syn.createSound(rng);
+		var played = copy(preset);
+		var playRng = rng.split();
+		scheduler.submit(RenderScheduler.Priority.PLAYBACK, () -> {
+			playImpl(render(played, playRng));
+			return null;
+		}).exceptionally(this::logFailure);
+	}
+
+	/**
+	 * @return a copy of the preset that workers can read while it is edited
+	 */
+	private static Preset copy(Preset preset) {
 		try {
-			var soundThread = (Sound) sound.clone();
-			executor.execute(() -> playImpl(soundThread));
-		} catch (CloneNotSupportedException e1) {
-			e1.printStackTrace();
-			return;
+			return (Preset) preset.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new AssertionError(e);
 		}
 	}
 
+	/**
+	 * Renders on a worker of the scheduler, a block at a time, and gives up as
+	 * soon as the render is superseded.
+	 *
+	 * @throws InterruptedException if the worker is interrupted
+	 */
+	private static Sound render(Preset preset, RandomGenerator rng) throws InterruptedException {
+		var syn = new Synth(preset, rng);
+		var pcm = new byte[syn.getLength()];
+		for (int done = 0; done < pcm.length;) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			done += syn.render(pcm, done, Math.min(RENDER_BLOCK_SIZE, pcm.length - done), rng);
+		}
+		return new Sound(pcm, Synth.SAMPLE_RATE);
+	}
+
+	/**
+	 * Logs a failed render, but not a superseded one.
+	 */
+	private <T> T logFailure(Throwable e) {
+		var cause = e instanceof CompletionException ? e.getCause() : e;
+		if (!(cause instanceof CancellationException || cause instanceof InterruptedException)) {
+			logger.log(Level.ERROR, "render failed", cause);
+		}
+		return null;
+	}
+
 	private void playImpl(Sound sound) {
-		var audioFormat = new AudioFormat(sound.getSampleRate(), 8, 1, true, true);
-		try (var line = AudioSystem.getSourceDataLine(audioFormat)) {
-			line.open(audioFormat);
-			line.start();
-			line.write(sound.getPcm(), 0, sound.getPcm().length);
-			line.drain();
+		try {
+			SampledSound.play(sound);
 		} catch (LineUnavailableException e) {
 			logger.log(Level.ERROR, e);
 		}
@@ -1889,34 +1979,73 @@ public class Application {
 		volumeSlider.setValue((int) (preset.getMasterVolume() * SLIDER_PRECISION));
 	}
 
+	/**
+	 * Renders the preset in the background and shows it once rendered. While a
+	 * render runs, edits only mark it stale, and the preset is rendered again
+	 * once it is done: superseding it would cancel every render of a drag.
+	 */
 	public void updateVisualizer() {
-		var syn = new Synth(preset, rng);
-		var sound = syn.createSound(rng);
-		soundVisualizer.updateHistogram(sound);
-		soundVisualizer.repaint();
-	}
-
-	private boolean useSystemFonts() {
-		var windows = System.getProperty("os.name", "").toLowerCase().contains("windows");
-		var systemFonts = System.getProperty("swing.useSystemFontSettings");
-		return windows && Boolean.parseBoolean(systemFonts);
+		// this render covers the edits the timer was waiting for
+		previewTimer.stop();
+		if (visualized != null && !visualized.isDone()) {
+			visualizerStale = true;
+			return;
+		}
+		visualizerStale = false;
+		var shown = copy(preset);
+		var visualizerRng = rng.split();
+		var future = scheduler.submit(RenderScheduler.Priority.PREVIEW, () -> render(shown, visualizerRng));
+		visualized = future;
+		future.thenAccept(sound -> SwingUtilities.invokeLater(() -> {
+			if (visualized == future) {
+				soundVisualizer.updateHistogram(sound);
+				soundVisualizer.repaint();
+				loop(sound);
+			}
+		})).exceptionally(this::logFailure)
+				.whenComplete((_, _) -> SwingUtilities.invokeLater(() -> {
+					if (visualizerStale && visualized == future) {
+						updateVisualizer();
+					}
+				}));
 	}
 
 	/**
-	 * generates a new wave file of the sound.
+	 * Schedules a render of the edited preset for the next frame, unless one is
+	 * scheduled already, and loops it while the slider is dragged.
 	 *
-	 * @param sound
-	 * @param os
-	 * @throws IOException
+	 * @param adjusting whether the edit is part of a drag
 	 */
-	private void write(Sound sound, OutputStream os) throws IOException {
-		long length = sound.getPcm().length;
-		var format = sound.createAudioFormat(8, 2, 2, false);
-		try (var is = new AudioInputStream(new ByteArrayInputStream(sound.getPcm()), format, length)) {
-			var type = AudioFileFormat.Type.WAVE;
-			if (AudioSystem.isFileTypeSupported(type, is)) {
-				AudioSystem.write(is, type, os);
-			}
+	private void previewChanged(boolean adjusting) {
+		previewLooping = adjusting;
+		if (!adjusting && loopPlayer != null) {
+			loopPlayer.close();
+			loopPlayer = null;
 		}
+		if (!previewTimer.isRunning()) {
+			previewTimer.start();
+		}
+	}
+
+	private void loop(Sound sound) {
+		if (!previewLooping) {
+			return;
+		}
+		if (loopPlayer != null) {
+			loopPlayer.setSound(sound);
+			return;
+		}
+		try {
+			loopPlayer = new LoopPlayer(sound);
+		} catch (LineUnavailableException e) {
+			logger.log(Level.ERROR, e);
+			previewLooping = false;
+		}
+	}
+
+	private boolean useSystemFonts() {
+		var windows = System.getProperty("os.name", "").toLowerCase().contains("windows");
+		var systemFonts = System.getProperty("swing.useSystemFontSettings");
+		return windows && Boolean.parseBoolean(systemFonts);
 	}
 }
@@ -0,0 +1,223 @@
+package com.github.tasogare.sfxr.app;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs the renders of the editor on a bounded pool, most urgent first.
+ *
+ * Waiting tasks are taken by priority, then in submission order. Background
+ * tasks never occupy the last worker, so an export can't hold back a preview
+ * or a playback. In the classes that supersede, a task cancels the older tasks
+ * of its class: those not started yet are dropped, and the workers running the
+ * others are interrupted, so that tasks checking for interruption stop early;
+ * their results are ignored anyway.
+ *
+ * @author tasogare
+ */
+final class RenderScheduler implements AutoCloseable {
+	/**
+	 * Classes of tasks, most urgent first.
+	 */
+	enum Priority {
+		/**
+		 * Renders shown while editing, of which only the latest matters.
+		 */
+		PREVIEW(true, false),
+		/**
+		 * Sounds played on request, of which only the latest matters.
+		 */
+		PLAYBACK(true, false),
+		/**
+		 * Files written in the background, all of which matter.
+		 */
+		EXPORT(false, true);
+
+		private final boolean supersedes;
+
+		private final boolean background;
+
+		Priority(boolean supersedes, boolean background) {
+			this.supersedes = supersedes;
+			this.background = background;
+		}
+	}
+
+	private static final class Task<T> {
+		final Priority priority;
+
+		final long sequence;
+
+		final Callable<T> callable;
+
+		final CompletableFuture<T> future = new CompletableFuture<>();
+
+		/**
+		 * Worker running the task, guarded by the lock of the scheduler.
+		 */
+		Thread runner;
+
+		Task(Priority priority, long sequence, Callable<T> callable) {
+			this.priority = priority;
+			this.sequence = sequence;
+			this.callable = callable;
+		}
+
+		void cancel() {
+			future.cancel(false);
+			if (runner != null) {
+				runner.interrupt();
+			}
+		}
+
+		void run() {
+			if (future.isDone()) {
+				return;
+			}
+			try {
+				future.complete(callable.call());
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		}
+	}
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition available = lock.newCondition();
+
+	private final PriorityQueue<Task<?>> queue = new PriorityQueue<>(
+			Comparator.comparing((Task<?> task) -> task.priority).thenComparingLong(task -> task.sequence));
+
+	private final EnumMap<Priority, Task<?>> latest = new EnumMap<>(Priority.class);
+
+	private final int maxBackground;
+
+	private int runningBackground;
+
+	private long sequence;
+
+	private boolean closed;
+
+	/**
+	 * One worker per processor, at least two so that background tasks leave one
+	 * free.
+	 */
+	RenderScheduler() {
+		this(Math.max(2, Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * @param workers number of worker threads, at least 2
+	 */
+	RenderScheduler(int workers) {
+		if (workers < 2) {
+			throw new IllegalArgumentException("workers: " + workers);
+		}
+		maxBackground = workers - 1;
+		for (int i = 0; i < workers; i++) {
+			Thread.ofPlatform().name("render-" + i).daemon().start(this::work);
+		}
+	}
+
+	/**
+	 * @param priority class of the task
+	 * @param callable task to run on a worker
+	 * @return the result of the task, cancelled if it is superseded
+	 */
+	<T> CompletableFuture<T> submit(Priority priority, Callable<T> callable) {
+		lock.lock();
+		try {
+			if (closed) {
+				throw new IllegalStateException("closed");
+			}
+			var task = new Task<>(priority, sequence++, callable);
+			if (priority.supersedes) {
+				var previous = latest.put(priority, task);
+				if (previous != null) {
+					previous.cancel();
+				}
+			}
+			queue.add(task);
+			available.signal();
+			return task.future;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void work() {
+		while (true) {
+			Task<?> task;
+			lock.lock();
+			try {
+				while ((task = next()) == null) {
+					if (closed) {
+						return;
+					}
+					available.awaitUninterruptibly();
+				}
+				if (task.priority.background) {
+					runningBackground++;
+				}
+				task.runner = Thread.currentThread();
+			} finally {
+				lock.unlock();
+			}
+			try {
+				task.run();
+			} finally {
+				lock.lock();
+				try {
+					task.runner = null;
+					// an interrupt aimed at this task must not reach the next one
+					Thread.interrupted();
+					if (task.priority.background) {
+						runningBackground--;
+						available.signal();
+					}
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the next task that may run, dropping the cancelled ones on the way
+	 */
+	private Task<?> next() {
+		Task<?> head;
+		while ((head = queue.peek()) != null && head.future.isDone()) {
+			queue.poll();
+		}
+		if (head == null || head.priority.background && runningBackground >= maxBackground) {
+			// every other task is background too
+			return null;
+		}
+		return queue.poll();
+	}
+
+	/**
+	 * Cancels the waiting tasks and lets the workers end once their task is done.
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			for (var task : queue) {
+				task.future.cancel(false);
+			}
+			queue.clear();
+			available.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package com.github.tasogare.sfxr.audio;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning the export of a sound to a wave file.
+ *
+ * @author tasogare
+ */
+@Name("tasogare.sfxr.Export")
+@Label("Export")
+@Category({ "SFXR", "Playback" })
+@Description("Writing of a sound as a wave file through javax.sound")
+final class ExportEvent extends Event {
+	@Label("Samples")
+	int samples;
+}
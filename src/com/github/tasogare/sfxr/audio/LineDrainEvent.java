@@ -0,0 +1,21 @@
+package com.github.tasogare.sfxr.audio;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning the wait for an audio line to play out.
+ *
+ * @author tasogare
+ */
+@Name("tasogare.sfxr.LineDrain")
+@Label("Line Drain")
+@Category({ "SFXR", "Playback" })
+@Description("Wait for the source data line to play its buffered samples")
+final class LineDrainEvent extends Event {
+	@Label("Samples Written")
+	long samples;
+}
@@ -0,0 +1,27 @@
+package com.github.tasogare.sfxr.audio;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning the acquisition, opening and start of an
+ * audio line.
+ *
+ * @author tasogare
+ */
+@Name("tasogare.sfxr.LineOpen")
+@Label("Line Open")
+@Category({ "SFXR", "Playback" })
+@Description("Opening of the source data line before playback")
+final class LineOpenEvent extends Event {
+	@Label("Sample Rate")
+	float sampleRate;
+
+	@Label("Buffer Size")
+	@DataAmount
+	int bufferSize;
+}
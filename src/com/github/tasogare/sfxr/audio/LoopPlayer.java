@@ -0,0 +1,94 @@
+package com.github.tasogare.sfxr.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+import com.github.tasogare.sfxr.engine.Sound;
+
+/**
+ * Plays a sound over and over on the default line, for previews that change
+ * while they play.
+ *
+ * A daemon thread feeds the line a small block at a time, so a new sound is
+ * heard within a few blocks, from the same position rather than from the
+ * start. Repeats are separated by a short silence.
+ *
+ * @author tasogare
+ */
+public final class LoopPlayer implements AutoCloseable {
+	private static final int BLOCK_SIZE = 512;
+
+	private static final int BUFFER_BLOCKS = 4;
+
+	private static final double GAP_SECONDS = 0.1;
+
+	private final SourceDataLine line;
+
+	private volatile Sound sound;
+
+	private volatile boolean running = true;
+
+	/**
+	 * Opens the line and starts playing.
+	 *
+	 * @param sound first sound to play
+	 * @throws LineUnavailableException if no line is available
+	 */
+	public LoopPlayer(Sound sound) throws LineUnavailableException {
+		this.sound = sound;
+		var audioFormat = new AudioFormat(sound.getSampleRate(), 8, 1, true, true);
+		var open = new LineOpenEvent();
+		open.begin();
+		line = AudioSystem.getSourceDataLine(audioFormat);
+		try {
+			line.open(audioFormat, BLOCK_SIZE * BUFFER_BLOCKS);
+		} catch (LineUnavailableException | RuntimeException e) {
+			line.close();
+			throw e;
+		}
+		line.start();
+		SampledSound.commit(open, line);
+		Thread.ofPlatform().name("loop-player").daemon().start(this::feed);
+	}
+
+	/**
+	 * @param sound sound to play from now on, at the same sample rate
+	 */
+	public void setSound(Sound sound) {
+		this.sound = sound;
+	}
+
+	/**
+	 * Stops playing without waiting for the line to drain.
+	 */
+	@Override
+	public void close() {
+		running = false;
+	}
+
+	private void feed() {
+		try {
+			var block = new byte[BLOCK_SIZE];
+			int position = 0;
+			while (running) {
+				var current = sound;
+				var pcm = current.getPcm();
+				int period = pcm.length + (int) (current.getSampleRate() * GAP_SECONDS);
+				for (int i = 0; i < block.length; i++) {
+					if (position >= period) {
+						position = 0;
+					}
+					block[i] = position < pcm.length ? pcm[position] : 0;
+					position++;
+				}
+				line.write(block, 0, block.length);
+			}
+			line.stop();
+			line.flush();
+		} finally {
+			line.close();
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package com.github.tasogare.sfxr.audio;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioFormat.Encoding;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+import com.github.tasogare.sfxr.engine.Interpolation;
+import com.github.tasogare.sfxr.engine.Mixer;
+import com.github.tasogare.sfxr.engine.Sound;
+
+/**
+ * Desktop I/O of engine sounds through {@code javax.sound.sampled}.
+ *
+ * @author tasogare
+ */
+public final class SampledSound {
+	private static final int MIX_BUFFER_SIZE = 1024;
+
+	private static final long DRAIN_POLL_MILLIS = 10;
+
+	public static AudioFormat createAudioFormat(Sound sound, int sampleSizeInBits, int channels, int frameSize,
+			boolean bigEndian) {
+		return new AudioFormat(Encoding.PCM_SIGNED, sound.getSampleRate(), sampleSizeInBits, channels, frameSize,
+				sound.getSampleRate(), bigEndian);
+	}
+
+	/**
+	 * Plays the sound on the default line, blocking until it is drained.
+	 *
+	 * If the thread is interrupted, as when a newer playback supersedes this one,
+	 * the line is stopped and closed at once and the interrupt status is kept.
+	 *
+	 * @param sound sound to play
+	 * @throws LineUnavailableException if no line is available
+	 */
+	public static void play(Sound sound) throws LineUnavailableException {
+		var audioFormat = new AudioFormat(sound.getSampleRate(), 8, 1, true, true);
+		var open = new LineOpenEvent();
+		open.begin();
+		try (var line = AudioSystem.getSourceDataLine(audioFormat)) {
+			line.open(audioFormat);
+			line.start();
+			commit(open, line);
+			var pcm = sound.getPcm();
+			// written a block at a time, since a blocked write ignores interrupts
+			for (int i = 0; i < pcm.length; i += MIX_BUFFER_SIZE) {
+				if (Thread.currentThread().isInterrupted()) {
+					stop(line);
+					return;
+				}
+				line.write(pcm, i, Math.min(MIX_BUFFER_SIZE, pcm.length - i));
+			}
+			drain(line, pcm.length);
+		}
+	}
+
+	/**
+	 * Plays the sound shifted by some semitones, blocking until it is drained.
+	 *
+	 * @param sound         sound to play
+	 * @param semitones     pitch shift in semitones
+	 * @param interpolation how to resample the sound
+	 * @throws LineUnavailableException if no line is available
+	 */
+	public static void play(Sound sound, double semitones, Interpolation interpolation)
+			throws LineUnavailableException {
+		var mixer = new Mixer(sound.getSampleRate());
+		mixer.play(sound, semitones, 1f, interpolation);
+		play(mixer);
+	}
+
+	/**
+	 * Plays the voices of the mixer on the default line, blocking until they all
+	 * ended or the thread is interrupted.
+	 *
+	 * @param mixer mixer to play
+	 * @throws LineUnavailableException if no line is available
+	 */
+	public static void play(Mixer mixer) throws LineUnavailableException {
+		var audioFormat = new AudioFormat(mixer.getSampleRate(), 8, 1, true, true);
+		var open = new LineOpenEvent();
+		open.begin();
+		try (var line = AudioSystem.getSourceDataLine(audioFormat)) {
+			line.open(audioFormat);
+			line.start();
+			commit(open, line);
+			var buffer = new byte[MIX_BUFFER_SIZE];
+			long written = 0;
+			do {
+				if (Thread.currentThread().isInterrupted()) {
+					stop(line);
+					return;
+				}
+				mixer.mix(buffer, 0, buffer.length);
+				written += line.write(buffer, 0, buffer.length);
+			} while (mixer.getActiveVoices() > 0);
+			drain(line, written);
+		}
+	}
+
+	static void commit(LineOpenEvent event, SourceDataLine line) {
+		if (event.shouldCommit()) {
+			event.sampleRate = line.getFormat().getSampleRate();
+			event.bufferSize = line.getBufferSize();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Waits for the line to play what it holds. {@link SourceDataLine#drain()}
+	 * ignores interrupts, so it only runs once the buffer is empty.
+	 */
+	private static void drain(SourceDataLine line, long samples) {
+		var event = new LineDrainEvent();
+		event.begin();
+		try {
+			while (line.available() < line.getBufferSize()) {
+				Thread.sleep(DRAIN_POLL_MILLIS);
+			}
+		} catch (InterruptedException e) {
+			stop(line);
+			Thread.currentThread().interrupt();
+			return;
+		}
+		line.drain();
+		if (event.shouldCommit()) {
+			event.samples = samples;
+			event.commit();
+		}
+	}
+
+	private static void stop(SourceDataLine line) {
+		line.stop();
+		line.flush();
+	}
+
+	/**
+	 * generates a new wave file of the sound.
+	 *
+	 * @param sound
+	 * @param os
+	 * @throws IOException
+	 */
+	public static void write(Sound sound, OutputStream os) throws IOException {
+		var event = new ExportEvent();
+		event.begin();
+		long length = sound.getPcm().length;
+		var format = createAudioFormat(sound, 8, 2, 2, false);
+		try (var is = new AudioInputStream(new ByteArrayInputStream(sound.getPcm()), format, length)) {
+			var type = AudioFileFormat.Type.WAVE;
+			if (AudioSystem.isFileTypeSupported(type, is)) {
+				AudioSystem.write(is, type, os);
+			}
+		}
+		if (event.shouldCommit()) {
+			event.samples = sound.getPcm().length;
+			event.commit();
+		}
+	}
+
+	private SampledSound() {
+	}
+}
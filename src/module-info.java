@@ -4,8 +4,10 @@
  */
 module tasogare.sfxr {
 	exports com.github.tasogare.sfxr.app;
+	exports com.github.tasogare.sfxr.audio;
 	exports com.github.tasogare.sfxr.laf;
-	exports com.github.tasogare.sfxr.engine;
 
 	requires transitive java.desktop;
+	requires jdk.jfr;
+	requires transitive tasogare.sfxr.engine;
 }